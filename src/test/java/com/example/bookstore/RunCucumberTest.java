@@ -1,17 +1,26 @@
 package com.example.bookstore;
 
-import io.cucumber.junit.Cucumber;
-import io.cucumber.junit.CucumberOptions;
-import org.junit.runner.RunWith;
+import org.junit.platform.suite.api.ConfigurationParameter;
+import org.junit.platform.suite.api.IncludeEngines;
+import org.junit.platform.suite.api.SelectClasspathResource;
+import org.junit.platform.suite.api.Suite;
 
-@RunWith(Cucumber.class)
-@CucumberOptions(
-        features = "src/test/resources/features",
-        glue = "com.example.bookstore.stepdefs",
-        plugin = {
-                "pretty",
-                "html:target/cucumber-reports/cucumber.html",
-                "json:target/cucumber-reports/cucumber.json"
-        })
+import static io.cucumber.junit.platform.engine.Constants.GLUE_PROPERTY_NAME;
+import static io.cucumber.junit.platform.engine.Constants.PLUGIN_PROPERTY_NAME;
+
+/**
+ * Runs all features on the JUnit Platform. Parallel execution is configured in junit-platform.properties and can be
+ * overridden per run with system properties, e.g. -Dcucumber.execution.parallel.config.fixed.parallelism=8
+ * <p>
+ * Results are streamed to target/cucumber-reports as NDJSON messages, next to the run's HTML report; both are named per
+ * shard in sharded runs. The Cucumber JSON report is produced from the streams by
+ * {@link com.example.bookstore.report.ReportMerger}, which also merges the streams of several shards.
+ */
+@Suite
+@IncludeEngines("cucumber")
+@SelectClasspathResource("features")
+@ConfigurationParameter(key = GLUE_PROPERTY_NAME, value = "com.example.bookstore.stepdefs")
+@ConfigurationParameter(key = PLUGIN_PROPERTY_NAME,
+        value = "pretty, com.example.bookstore.report.HtmlReportPlugin, com.example.bookstore.report.MessageStreamPlugin")
 public class RunCucumberTest {
-}
\ No newline at end of file
+}
@@ -0,0 +1,57 @@
+package com.example.bookstore.benchmark;
+
+import com.example.bookstore.model.Book;
+import com.example.bookstore.model.Token;
+import com.example.bookstore.util.ApiHelper;
+import com.example.bookstore.util.ResponseDecoder;
+import com.example.bookstore.util.UserUtil;
+import io.restassured.response.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single API steps end to end against the in-process stub: request building, the filter chain, the pooled HTTP
+ * exchange and response extraction. Without stub latency configured this measures what the harness itself costs per
+ * step.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dbookstore.target=local")
+@State(Scope.Benchmark)
+public class EndToEndBenchmark {
+
+    private String username;
+    private String password;
+
+    @Setup
+    public void createUser() {
+        username = UserUtil.generateUniqueUsername();
+        password = UserUtil.generateDefaultPassword();
+        Response response = ApiHelper.createUser(username, password);
+        if (response.getStatusCode() != 201) {
+            throw new IllegalStateException("Failed to create benchmark user. Status: " + response.getStatusCode());
+        }
+    }
+
+    @Benchmark
+    public String getBookTitle() {
+        return ResponseDecoder.decode(ApiHelper.getBookByIsbn("9781449325862"), Book.class).title();
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return ResponseDecoder.decode(ApiHelper.generateToken(username, password), Token.class).token();
+    }
+}
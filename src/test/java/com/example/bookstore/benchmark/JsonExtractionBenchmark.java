@@ -0,0 +1,105 @@
+package com.example.bookstore.benchmark;
+
+import com.example.bookstore.model.BookCollection;
+import com.example.bookstore.model.Token;
+import com.example.bookstore.model.User;
+import com.example.bookstore.util.ResponseDecoder;
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.response.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of extracting fields from recorded catalog, user and token payloads (src/test/resources/benchmark): GPath
+ * {@code jsonPath()} lookups, which parse the body again on every call, against the streaming {@link ResponseDecoder}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonExtractionBenchmark {
+
+    private Response catalog;
+    private Response user;
+    private Response token;
+
+    @Setup
+    public void loadPayloads() {
+        catalog = recorded("catalog.json");
+        user = recorded("user.json");
+        token = recorded("token.json");
+    }
+
+    @Benchmark
+    public List<Object> catalogBooks() {
+        return catalog.jsonPath().getList("books");
+    }
+
+    @Benchmark
+    public String catalogTitle() {
+        return catalog.jsonPath().getString("books.find { it.isbn == '9781449331818' }.title");
+    }
+
+    @Benchmark
+    public String userName() {
+        return user.jsonPath().getString("username");
+    }
+
+    @Benchmark
+    public List<Object> userBooks() {
+        return user.jsonPath().getList("books");
+    }
+
+    @Benchmark
+    public String tokenValue() {
+        return token.jsonPath().getString("token");
+    }
+
+    @Benchmark
+    public BookCollection decodeCatalog() {
+        return ResponseDecoder.decode(catalog, BookCollection.class);
+    }
+
+    @Benchmark
+    public User decodeUser() {
+        return ResponseDecoder.decode(user, User.class);
+    }
+
+    @Benchmark
+    public Token decodeToken() {
+        return ResponseDecoder.decode(token, Token.class);
+    }
+
+    @Benchmark
+    public String tokenField() {
+        return ResponseDecoder.field(token, "token");
+    }
+
+    private static Response recorded(String name) {
+        try (InputStream in = JsonExtractionBenchmark.class.getResourceAsStream("/benchmark/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Recorded payload not found: " + name);
+            }
+            return new ResponseBuilder().setStatusCode(200).setContentType("application/json; charset=utf-8")
+                                        .setBody(in.readAllBytes()).build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
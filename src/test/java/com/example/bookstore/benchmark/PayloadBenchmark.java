@@ -0,0 +1,70 @@
+package com.example.bookstore.benchmark;
+
+import com.example.bookstore.util.ApiHelper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning request payloads into the bytes that go on the wire: the compiled {@code PayloadTemplate} used for
+ * credentials against the former {@code String.format} text block and the {@code Map.of} bodies that RestAssured
+ * serializes with Jackson.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PayloadBenchmark {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final String username = "testuser_3f9a1c2b";
+    private final String password = "SecurePass_123!";
+    private final String userId = "5a8e7f64-1c4e-4b9d-9f3b-2f0d6a1c7e21";
+    private final List<String> isbns = List.of("9781449325862", "9781449331818");
+
+    @Benchmark
+    public byte[] credentialsTemplate() {
+        return ApiHelper.credentialsPayload(username, password);
+    }
+
+    @Benchmark
+    public byte[] credentialsFormat() {
+        return String.format("""
+                {
+                  "userName": "%s",
+                  "password": "%s"
+                }
+                """, username, password).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] credentialsMap() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(Map.of("userName", username, "password", password));
+    }
+
+    @Benchmark
+    public byte[] addBooksMap() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(ApiHelper.addBooksPayload(userId, isbns));
+    }
+
+    @Benchmark
+    public byte[] replaceBookMap() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(ApiHelper.replaceBookPayload(userId, isbns.get(1)));
+    }
+}
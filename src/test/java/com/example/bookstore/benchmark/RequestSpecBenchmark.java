@@ -0,0 +1,58 @@
+package com.example.bookstore.benchmark;
+
+import com.example.bookstore.util.ApiClient;
+import com.example.bookstore.util.ApiHelper;
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import io.restassured.specification.RequestSpecification;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building RestAssured request specifications, without sending them. {@code given} is the bare RestAssured
+ * baseline; the others start from the per-thread base specification of {@link ApiClient}, as every API call does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestSpecBenchmark {
+
+    private final String token = "eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9.e30.c2lnbmF0dXJl";
+    private final String userId = "5a8e7f64-1c4e-4b9d-9f3b-2f0d6a1c7e21";
+    private final List<String> isbns = List.of("9781449325862");
+
+    @Benchmark
+    public RequestSpecification given() {
+        return RestAssured.given();
+    }
+
+    @Benchmark
+    public RequestSpecification baseSpec() {
+        return ApiClient.request();
+    }
+
+    @Benchmark
+    public RequestSpecification credentialsRequest() {
+        return ApiClient.request().contentType(ContentType.JSON)
+                        .body(ApiHelper.credentialsPayload("testuser_3f9a1c2b", "SecurePass_123!"));
+    }
+
+    @Benchmark
+    public RequestSpecification addBooksRequest() {
+        return ApiClient.request().header("Authorization", "Bearer " + token)
+                        .contentType(ContentType.JSON).body(ApiHelper.addBooksPayload(userId, isbns));
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.bookstore.cassette;
+
+import com.example.bookstore.util.ConfigUtil;
+import com.example.bookstore.util.LoggerUtil;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * Records API traffic to a cassette, or replays it without touching the network.
+ * <p>
+ * With bookstore.cassette.mode=record every request still goes to the server and the exchange is appended to
+ * bookstore.cassette.file. With bookstore.cassette.mode=replay responses come from that file instead, which makes the
+ * suite runnable offline and independent of the live API; a request without a recording fails the step with an
+ * {@link IllegalStateException}. The filter sits last in the chain, so rate limiting and timing still apply, and
+ * replayed timings show the local overhead only. See {@link CassettePlayer} for how requests are matched.
+ */
+public class CassetteFilter implements Filter {
+
+    private static final Logger logger = LoggerUtil.getLogger(CassetteFilter.class);
+
+    private static final String MODE = ConfigUtil.getString("bookstore.cassette.mode", "off");
+    private static final Path FILE = Path.of(ConfigUtil.getString("bookstore.cassette.file", "cassettes/bookstore.cassette"));
+
+    private static volatile CassetteRecorder recorder;
+    private static volatile CassettePlayer player;
+
+    static {
+        if (!MODE.equals("off") && !MODE.equals("record") && !MODE.equals("replay")) {
+            throw new IllegalArgumentException("bookstore.cassette.mode must be off, record or replay but was: " + MODE);
+        }
+    }
+
+    /**
+     * Returns whether responses are served from the cassette
+     *
+     * @return true in replay mode
+     */
+    public static boolean isReplaying() {
+        return MODE.equals("replay");
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        if (MODE.equals("record")) {
+            Response response = ctx.next(requestSpec, responseSpec);
+            recorder().append(Interaction.of(RequestKey.of(requestSpec), response));
+            return response;
+        }
+        if (MODE.equals("replay")) {
+            RequestKey key = RequestKey.of(requestSpec);
+            Interaction interaction = player().play(key);
+            if (interaction == null) {
+                throw new IllegalStateException("No recorded interaction in " + FILE + " for request:\n" + key.exact());
+            }
+            return interaction.toResponse();
+        }
+        return ctx.next(requestSpec, responseSpec);
+    }
+
+    /**
+     * Forgets the call numbers that match the requests of the scenario on this thread to recordings. Call on the
+     * scenario thread when the scenario ends.
+     */
+    public static void scenarioFinished() {
+        RequestKey.scenarioFinished();
+    }
+
+    /**
+     * Finishes a recording by writing the cassette index. Does nothing in the other modes.
+     */
+    public static synchronized void close() {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.close();
+            logger.info("Cassette {} holds {} interactions", FILE.toAbsolutePath(), recorder.size());
+        } catch (IOException e) {
+            logger.warn("Failed to write the index of cassette {}; replay will rebuild it", FILE, e);
+        }
+        recorder = null;
+    }
+
+    private static CassetteRecorder recorder() {
+        CassetteRecorder current = recorder;
+        if (current != null) {
+            return current;
+        }
+        synchronized (CassetteFilter.class) {
+            if (recorder == null) {
+                try {
+                    recorder = CassetteRecorder.open(FILE);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot open cassette " + FILE + " for recording", e);
+                }
+            }
+            return recorder;
+        }
+    }
+
+    private static CassettePlayer player() {
+        CassettePlayer current = player;
+        if (current != null) {
+            return current;
+        }
+        synchronized (CassetteFilter.class) {
+            if (player == null) {
+                try {
+                    player = CassettePlayer.open(FILE);
+                    logger.info("Replaying {} interactions from cassette {}", player.size(), FILE);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot open cassette " + FILE + " for replay", e);
+                }
+            }
+            return player;
+        }
+    }
+}
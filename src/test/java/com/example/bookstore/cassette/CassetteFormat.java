@@ -0,0 +1,196 @@
+package com.example.bookstore.cassette;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-disk layout of a cassette and its index.
+ * <p>
+ * The cassette starts with a 4-byte magic followed by records appended in recording order. Each record is a 4-byte
+ * length and then the exact key, loose key, recorded usernames, scenario location, call number, status, headers and body.
+ * Strings and the body are length-prefixed, so a reader can hop from record to record without decoding the bodies.
+ * <p>
+ * The index sits next to the cassette as {@code <cassette>.idx} and lists the keys, usernames, scenario, call and offset of
+ * every record, plus the cassette length it covers. Replay loads the index and only touches the mapped cassette for the
+ * interactions it actually plays. An index that is missing or covers a different length is rebuilt by scanning the record headers.
+ */
+final class CassetteFormat {
+
+    static final int MAGIC = 0x424B4332;
+    private static final int INDEX_MAGIC = 0x424B4932;
+
+    /**
+     * Location of a record plus what is needed to match it
+     */
+    record Entry(String exactKey, String looseKey, List<String> usernames, String scenario, int call, long offset) {
+    }
+
+    private CassetteFormat() {
+    }
+
+    static Path indexPath(Path cassette) {
+        return cassette.resolveSibling(cassette.getFileName() + ".idx");
+    }
+
+    static byte[] encode(Interaction interaction) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512 + interaction.body().length);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0);
+            writeKey(out, interaction.key());
+            out.writeShort(interaction.status());
+            out.writeShort(interaction.headers().size());
+            for (Map.Entry<String, String> header : interaction.headers().entrySet()) {
+                writeString(out, header.getKey());
+                writeString(out, header.getValue());
+            }
+            out.writeInt(interaction.body().length);
+            out.write(interaction.body());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        record.putInt(0, record.capacity() - Integer.BYTES);
+        return record.array();
+    }
+
+    static Interaction decode(ByteBuffer cassette, long offset) {
+        ByteBuffer in = cassette.duplicate().position(Math.toIntExact(offset) + Integer.BYTES);
+        RequestKey key = readKey(in);
+        int status = in.getShort();
+        int headerCount = in.getShort();
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (int i = 0; i < headerCount; i++) {
+            headers.put(readString(in), readString(in));
+        }
+        byte[] body = new byte[in.getInt()];
+        in.get(body);
+        return new Interaction(key, status, headers, body);
+    }
+
+    /**
+     * Lists the records of a mapped cassette, reading only their keys
+     */
+    static List<Entry> scan(ByteBuffer cassette) {
+        ByteBuffer in = cassette.duplicate();
+        if (in.remaining() < Integer.BYTES) {
+            throw new IllegalStateException("Not a cassette file");
+        }
+        int magic = in.getInt();
+        if (magic != MAGIC) {
+            throw new IllegalStateException(((magic >>> 8) == (MAGIC >>> 8))
+                    ? "Cassette was recorded in an older format; record it again" : "Not a cassette file");
+        }
+        List<Entry> entries = new ArrayList<>();
+        while (in.remaining() >= Integer.BYTES) {
+            int offset = in.position();
+            int length = in.getInt();
+            if (length > in.remaining()) {
+                // Truncated last record of an interrupted recording
+                break;
+            }
+            RequestKey key = readKey(in);
+            entries.add(new Entry(key.exact(), key.loose(), key.usernames(), key.scenario(), key.call(), offset));
+            in.position(offset + Integer.BYTES + length);
+        }
+        return entries;
+    }
+
+    static void writeIndex(Path cassette, long coveredLength, List<Entry> entries) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexPath(cassette))))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeLong(coveredLength);
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                writeKey(out, new RequestKey(entry.exactKey(), entry.looseKey(), entry.usernames(), entry.scenario(), entry.call()));
+                out.writeLong(entry.offset());
+            }
+        }
+    }
+
+    /**
+     * Reads the index of a cassette
+     *
+     * @return entries, or null if there is no index or it doesn't cover exactly coveredLength bytes
+     */
+    static List<Entry> readIndex(Path cassette, long coveredLength) throws IOException {
+        Path index = indexPath(cassette);
+        if (!Files.exists(index)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(index)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readLong() != coveredLength) {
+                return null;
+            }
+            int count = in.readInt();
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String exact = readString(in);
+                String loose = readString(in);
+                List<String> usernames = new ArrayList<>();
+                for (int n = in.readUnsignedShort(); n > 0; n--) {
+                    usernames.add(readString(in));
+                }
+                String scenario = readString(in);
+                int call = in.readInt();
+                entries.add(new Entry(exact, loose, usernames, scenario, call, in.readLong()));
+            }
+            return entries;
+        }
+    }
+
+    private static void writeKey(DataOutputStream out, RequestKey key) throws IOException {
+        writeString(out, key.exact());
+        writeString(out, key.loose());
+        out.writeShort(key.usernames().size());
+        for (String username : key.usernames()) {
+            writeString(out, username);
+        }
+        writeString(out, key.scenario());
+        out.writeInt(key.call());
+    }
+
+    private static RequestKey readKey(ByteBuffer in) {
+        String exact = readString(in);
+        String loose = readString(in);
+        List<String> usernames = new ArrayList<>();
+        for (int n = Short.toUnsignedInt(in.getShort()); n > 0; n--) {
+            usernames.add(readString(in));
+        }
+        String scenario = readString(in);
+        return new RequestKey(exact, loose, usernames, scenario, in.getInt());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Cassette string longer than 64 KB: " + value.substring(0, 80) + "...");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[Short.toUnsignedInt(in.getShort())];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.bookstore.cassette;
+
+import com.example.bookstore.cassette.CassetteFormat.Entry;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Serves recorded responses from a memory-mapped cassette.
+ * <p>
+ * A request from a scenario gets the recording made at the same point of the same scenario: the one with the same
+ * scenario location, loose key and call number (see {@link RequestKey}). That pick depends only on the request's own
+ * scenario, so it is the same however parallel scenarios interleave or which pooled user runs them. If the cassette was
+ * recorded more than once, the latest recording wins.
+ * <p>
+ * Usernames are generated fresh on every run. The usernames of the request are paired by position with those of the
+ * recording, and recorded usernames in the response body are swapped back to the current ones. Pairings made for
+ * scenario requests are remembered, so a later response that mentions a username the request didn't carry (e.g. an
+ * account looked up by token) is rewritten too. Server-issued values such as user IDs and tokens need no pairing,
+ * since the run only ever learns them from replayed responses.
+ * <p>
+ * Requests outside a scenario (e.g. accounts provisioned by pool threads) and requests the scenario didn't make while
+ * recording (e.g. an account it provisioned inline because the pool was empty) fall back to the recordings with the same
+ * loose key that were made outside any scenario or by the same scenario, but only when all of them answered alike: same
+ * status and same body once usernames, UUIDs, tokens and timestamps are masked. Otherwise the pick would depend on timing, so
+ * replay fails with an {@link IllegalStateException} instead.
+ */
+final class CassettePlayer {
+
+    // Issue and expiry times differ between otherwise identical responses
+    private static final Pattern TIMESTAMP = Pattern.compile("\\d{4}-\\d{2}-\\d{2}T[\\d:.]+(Z|[+-]\\d{2}:?\\d{2})?");
+
+    private final MappedByteBuffer cassette;
+    private final Map<String, Entry> byCall = new HashMap<>();
+    private final Map<String, List<Entry>> byLooseKey = new HashMap<>();
+    private final Map<String, Entry> equivalentByLooseKey = new ConcurrentHashMap<>();
+
+    private final Map<String, String> currentByRecorded = new ConcurrentHashMap<>();
+
+    private CassettePlayer(MappedByteBuffer cassette, List<Entry> entries) {
+        this.cassette = cassette;
+        for (Entry entry : entries) {
+            if (!entry.scenario().isEmpty()) {
+                byCall.put(callKey(entry.scenario(), entry.call(), entry.looseKey()), entry);
+            }
+            byLooseKey.computeIfAbsent(entry.looseKey(), key -> new ArrayList<>()).add(entry);
+        }
+    }
+
+    static CassettePlayer open(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            throw new IllegalStateException("No cassette at " + file.toAbsolutePath() + "; record one with bookstore.cassette.mode=record");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Cassette " + file + " is larger than 2 GB");
+            }
+            MappedByteBuffer cassette = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            List<Entry> entries = CassetteFormat.readIndex(file, size);
+            if (entries == null) {
+                entries = CassetteFormat.scan(cassette);
+                CassetteFormat.writeIndex(file, size, entries);
+            }
+            return new CassettePlayer(cassette, entries);
+        }
+    }
+
+    int size() {
+        return byLooseKey.values().stream().mapToInt(List::size).sum();
+    }
+
+    /**
+     * Returns the recorded interaction for a request
+     *
+     * @param key Key of the current request
+     * @return interaction with the response body rewritten to the current usernames, or null if nothing matches
+     * @throws IllegalStateException if the request has no recording of its own and its loose matches answered differently
+     */
+    Interaction play(RequestKey key) {
+        Entry entry = key.scenario().isEmpty() ? null : byCall.get(callKey(key.scenario(), key.call(), key.loose()));
+        boolean ownRecording = entry != null;
+        if (!ownRecording) {
+            entry = equivalent(key);
+        }
+        if (entry == null) {
+            return null;
+        }
+
+        Map<String, String> pairing = new HashMap<>(currentByRecorded);
+        for (int i = 0; i < Math.min(key.usernames().size(), entry.usernames().size()); i++) {
+            pairing.put(entry.usernames().get(i), key.usernames().get(i));
+            if (ownRecording) {
+                currentByRecorded.put(entry.usernames().get(i), key.usernames().get(i));
+            }
+        }
+
+        Interaction recorded = CassetteFormat.decode(cassette, entry.offset());
+        if (pairing.isEmpty() || !containsUsername(recorded.body())) {
+            return recorded;
+        }
+        String body = RequestKey.replaceUsernames(new String(recorded.body(), StandardCharsets.UTF_8), pairing);
+        return new Interaction(recorded.key(), recorded.status(), recorded.headers(), body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the first recording with the request's loose key, made outside any scenario or by the request's own
+     * scenario, if all of those answered alike
+     */
+    private Entry equivalent(RequestKey key) {
+        List<Entry> entries = byLooseKey.getOrDefault(key.loose(), List.of()).stream()
+                                        .filter(entry -> entry.scenario().isEmpty() || entry.scenario().equals(key.scenario()))
+                                        .toList();
+        if (entries.isEmpty()) {
+            return null;
+        }
+        return equivalentByLooseKey.computeIfAbsent(key.scenario() + '\n' + key.loose(), candidates -> {
+            Interaction first = CassetteFormat.decode(cassette, entries.get(0).offset());
+            String firstBody = masked(first.body());
+            for (Entry entry : entries.subList(1, entries.size())) {
+                Interaction other = CassetteFormat.decode(cassette, entry.offset());
+                if (other.status() != first.status() || !masked(other.body()).equals(firstBody)) {
+                    throw new IllegalStateException("Cannot replay " + describe(key) + ": it has no recording of its own and the "
+                            + entries.size() + " recordings of the same shape answered differently, e.g. " + first.status() + " "
+                            + firstBody + " and " + other.status() + " " + masked(other.body()) + "; record the cassette again\n"
+                            + key.exact());
+                }
+            }
+            return entries.get(0);
+        });
+    }
+
+    private static String masked(byte[] body) {
+        return TIMESTAMP.matcher(RequestKey.loosen(new String(body, StandardCharsets.UTF_8))).replaceAll("{timestamp}");
+    }
+
+    private static String describe(RequestKey key) {
+        return key.scenario().isEmpty() ? "a request outside any scenario" : "call " + key.call() + " of scenario " + key.scenario();
+    }
+
+    private static String callKey(String scenario, int call, String looseKey) {
+        return scenario + '\n' + call + '\n' + looseKey;
+    }
+
+    private static boolean containsUsername(byte[] body) {
+        return RequestKey.USERNAME.matcher(new String(body, StandardCharsets.ISO_8859_1)).find();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.bookstore.cassette;
+
+import com.example.bookstore.cassette.CassetteFormat.Entry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends interactions to a cassette. Recording into an existing cassette adds to it, so several runs (e.g. one per
+ * tag) can fill the same file. The index is written on {@link #close()}.
+ */
+final class CassetteRecorder implements AutoCloseable {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final List<Entry> entries;
+    private long position;
+
+    private CassetteRecorder(Path file, FileChannel channel, List<Entry> entries, long position) {
+        this.file = file;
+        this.channel = channel;
+        this.entries = entries;
+        this.position = position;
+    }
+
+    static CassetteRecorder open(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size == 0) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, CassetteFormat.MAGIC));
+            return new CassetteRecorder(file, channel, new ArrayList<>(), Integer.BYTES);
+        }
+
+        List<Entry> entries = CassetteFormat.readIndex(file, size);
+        if (entries == null) {
+            MappedByteBuffer existing = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            entries = CassetteFormat.scan(existing);
+        }
+        entries = new ArrayList<>(entries);
+        // Continue after the last complete record, dropping a truncated one left by an interrupted run
+        long end = entries.isEmpty() ? Integer.BYTES : lastRecordEnd(channel, entries.get(entries.size() - 1).offset());
+        channel.truncate(end);
+        return new CassetteRecorder(file, channel, entries, end);
+    }
+
+    synchronized void append(Interaction interaction) {
+        byte[] record = CassetteFormat.encode(interaction);
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to cassette " + file, e);
+        }
+        RequestKey key = interaction.key();
+        entries.add(new Entry(key.exact(), key.loose(), key.usernames(), key.scenario(), key.call(), position));
+        position += record.length;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.force(false);
+        channel.close();
+        CassetteFormat.writeIndex(file, position, entries);
+    }
+
+    private static long lastRecordEnd(FileChannel channel, long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        channel.read(length, offset);
+        return offset + Integer.BYTES + length.getInt(0);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.bookstore.cassette;
+
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.response.Response;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One recorded request/response pair. Only the response headers the suite reads are kept.
+ */
+record Interaction(RequestKey key, int status, Map<String, String> headers, byte[] body) {
+
+    static final List<String> RECORDED_HEADERS = List.of("Content-Type", "ETag", "Last-Modified");
+
+    static Interaction of(RequestKey key, Response response) {
+        Map<String, String> headers = new java.util.LinkedHashMap<>();
+        for (String name : RECORDED_HEADERS) {
+            String value = response.getHeader(name);
+            if (value != null) {
+                headers.put(name, value);
+            }
+        }
+        return new Interaction(key, response.getStatusCode(), headers, response.asByteArray());
+    }
+
+    Response toResponse() {
+        List<Header> headerList = headers.entrySet().stream().map(header -> new Header(header.getKey(), header.getValue())).toList();
+        ResponseBuilder builder = new ResponseBuilder().setStatusCode(status).setStatusLine("HTTP/1.1 " + status)
+                                                       .setHeaders(new Headers(headerList)).setBody(body);
+        String contentType = headers.get("Content-Type");
+        if (contentType != null) {
+            builder.setContentType(contentType);
+        }
+        return builder.build();
+    }
+}
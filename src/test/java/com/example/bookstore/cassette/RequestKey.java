@@ -0,0 +1,158 @@
+package com.example.bookstore.cassette;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.restassured.specification.FilterableRequestSpecification;
+import org.slf4j.MDC;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Identity of a request for cassette matching.
+ * <p>
+ * The exact key is method, path, sorted query parameters, the headers that change the response (Authorization and the
+ * conditional GET validators) and the body with its JSON fields sorted, so formatting and field order don't matter. The
+ * loose key additionally replaces the dynamic values with placeholders: test usernames ({@code testuser_} plus eight hex
+ * digits, from {@code UserUtil}), UUIDs such as the userID, and tokens issued by the service. Made-up values such as
+ * the invalid token of the negative scenarios don't have those shapes and stay in the loose key, so a request with a
+ * valid token never matches the recording of one with an invalid token.
+ * <p>
+ * The location of the scenario that sent the request (feature file name and line, so each Examples row is its own
+ * scenario) and the call number are kept alongside: the call number counts the requests with the same loose key
+ * within one run of that scenario, starting at 0. Replay uses the pair to find the recording made at the same point of
+ * the same scenario, whatever order parallel scenarios run in. Requests outside a scenario (e.g. from pool threads)
+ * have an empty location and call number 0.
+ */
+record RequestKey(String exact, String loose, List<String> usernames, String scenario, int call) {
+
+    static final Pattern USERNAME = Pattern.compile("testuser_[0-9a-f]{8}");
+    private static final Pattern UUID = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+    // JWTs from the live service, hex tokens from the stub; deliberately invalid tokens stay literal
+    private static final Pattern ISSUED_TOKEN = Pattern.compile("eyJ[\\w-]+\\.[\\w-]+\\.[\\w-]+|\\b[0-9a-f]{32}\\b");
+
+    private static final List<String> RELEVANT_HEADERS = List.of("Authorization", "If-None-Match", "If-Modified-Since");
+
+    private static final ObjectMapper mapper = new ObjectMapper().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    // Per running scenario (by the scenarioRun MDC value), the number of requests sent so far for each loose key
+    private static final Map<String, Map<String, AtomicInteger>> callCounts = new ConcurrentHashMap<>();
+
+    static RequestKey of(FilterableRequestSpecification request) {
+        StringBuilder key = new StringBuilder(request.getMethod()).append(' ').append(request.getDerivedPath());
+        Map<String, String> query = new TreeMap<>(request.getQueryParams());
+        if (!query.isEmpty()) {
+            key.append('?').append(query.entrySet().stream().map(param -> param.getKey() + "=" + param.getValue())
+                                        .collect(Collectors.joining("&")));
+        }
+        for (String header : RELEVANT_HEADERS) {
+            String value = request.getHeaders().getValue(header);
+            if (value != null) {
+                key.append('\n').append(header).append(": ").append(value);
+            }
+        }
+        String body = canonicalBody(request.getBody());
+        if (!body.isEmpty()) {
+            key.append("\n\n").append(body);
+        }
+
+        String exact = key.toString();
+        String loose = loosen(exact);
+        String scenario = MDC.get("scenarioLocation");
+        String run = MDC.get("scenarioRun");
+        if (scenario == null || run == null) {
+            return new RequestKey(exact, loose, usernamesIn(exact), "", 0);
+        }
+        int call = callCounts.computeIfAbsent(run, id -> new ConcurrentHashMap<>())
+                             .computeIfAbsent(loose, counter -> new AtomicInteger())
+                             .getAndIncrement();
+        return new RequestKey(exact, loose, usernamesIn(exact), scenario, call);
+    }
+
+    /**
+     * Forgets the call numbers of the scenario running on this thread
+     */
+    static void scenarioFinished() {
+        String run = MDC.get("scenarioRun");
+        if (run != null) {
+            callCounts.remove(run);
+        }
+    }
+
+    /**
+     * Replaces each username with its mapping, leaving unmapped ones as they are
+     *
+     * @param text     Text to rewrite
+     * @param mappings Username replacements
+     * @return rewritten text
+     */
+    static String replaceUsernames(String text, Map<String, String> mappings) {
+        if (mappings.isEmpty()) {
+            return text;
+        }
+        Matcher matcher = USERNAME.matcher(text);
+        StringBuilder result = new StringBuilder(text.length());
+        while (matcher.find()) {
+            matcher.appendReplacement(result, Matcher.quoteReplacement(mappings.getOrDefault(matcher.group(), matcher.group())));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    /**
+     * Replaces usernames, UUIDs and issued tokens with placeholders
+     *
+     * @param exact Text to mask
+     * @return masked text
+     */
+    static String loosen(String exact) {
+        String loose = USERNAME.matcher(exact).replaceAll("{username}");
+        loose = UUID.matcher(loose).replaceAll("{uuid}");
+        return ISSUED_TOKEN.matcher(loose).replaceAll("{token}");
+    }
+
+    private static List<String> usernamesIn(String text) {
+        LinkedHashSet<String> usernames = new LinkedHashSet<>();
+        Matcher matcher = USERNAME.matcher(text);
+        while (matcher.find()) {
+            usernames.add(matcher.group());
+        }
+        return new ArrayList<>(usernames);
+    }
+
+    private static String canonicalBody(Object body) {
+        if (body == null) {
+            return "";
+        }
+        try {
+            if (body instanceof byte[] bytes) {
+                return canonicalJson(new String(bytes, StandardCharsets.UTF_8));
+            }
+            if (body instanceof String text) {
+                return canonicalJson(text);
+            }
+            return mapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize request body for the cassette key", e);
+        }
+    }
+
+    private static String canonicalJson(String text) {
+        try {
+            return mapper.writeValueAsString(mapper.readValue(text, Object.class));
+        } catch (JsonProcessingException e) {
+            // Intentionally malformed bodies are matched on their text
+            return text.strip().replaceAll("\\s+", " ");
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.bookstore.data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads RFC 4180 CSV one record at a time: comma-separated, fields optionally in double quotes, a doubled quote inside
+ * quotes is a literal quote, and quoted fields may span lines. Only the current record is held in memory.
+ */
+final class CsvRecordReader implements Iterator<List<String>> {
+
+    private final BufferedReader reader;
+    private final StringBuilder field = new StringBuilder();
+    private List<String> next;
+    private boolean finished;
+    private long line = 1;
+
+    CsvRecordReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            next = read();
+        }
+        return next != null;
+    }
+
+    @Override
+    public List<String> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<String> record = next;
+        next = null;
+        return record;
+    }
+
+    private List<String> read() {
+        try {
+            List<String> record = new ArrayList<>();
+            field.setLength(0);
+            boolean quoted = false;
+            boolean fieldStarted = false;
+            long startLine = line;
+            int c;
+            while ((c = reader.read()) != -1) {
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            field.append('"');
+                        } else {
+                            reader.reset();
+                            quoted = false;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                    fieldStarted = true;
+                } else if (c == ',') {
+                    record.add(field.toString());
+                    field.setLength(0);
+                    fieldStarted = true;
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r') {
+                        reader.mark(1);
+                        if (reader.read() != '\n') {
+                            reader.reset();
+                        }
+                    }
+                    line++;
+                    if (record.isEmpty() && field.isEmpty() && !fieldStarted) {
+                        // blank line
+                        startLine = line;
+                        continue;
+                    }
+                    record.add(field.toString());
+                    return record;
+                } else {
+                    field.append((char) c);
+                    fieldStarted = true;
+                }
+            }
+            if (quoted) {
+                throw new IllegalStateException("Unterminated quoted field in the record starting on line " + startLine);
+            }
+            finished = true;
+            if (record.isEmpty() && !fieldStarted) {
+                return null;
+            }
+            record.add(field.toString());
+            return record;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
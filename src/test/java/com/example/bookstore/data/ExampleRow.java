@@ -0,0 +1,39 @@
+package com.example.bookstore.data;
+
+import java.util.Map;
+
+/**
+ * One row of an external example source
+ *
+ * @param number Position of the row in the source, starting at 1 (header excluded)
+ * @param values Values by column name
+ */
+public record ExampleRow(long number, Map<String, String> values) {
+
+    /**
+     * Returns a column value
+     *
+     * @param column Column name
+     * @return value; an empty CSV cell is an empty string
+     * @throws IllegalArgumentException if the row has no such column
+     */
+    public String get(String column) {
+        String value = values.get(column);
+        if (value == null && !values.containsKey(column)) {
+            throw new IllegalArgumentException("Row " + number + " has no column '" + column + "', only " + values.keySet());
+        }
+        return value;
+    }
+
+    /**
+     * Returns a column value, or a default when the row has no such column or the value is null
+     *
+     * @param column       Column name
+     * @param defaultValue Default value
+     * @return value or default
+     */
+    public String get(String column, String defaultValue) {
+        String value = values.get(column);
+        return (value == null) ? defaultValue : value;
+    }
+}
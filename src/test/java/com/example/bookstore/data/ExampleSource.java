@@ -0,0 +1,283 @@
+package com.example.bookstore.data;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * External example data for data-driven scenarios, read lazily from a CSV or JSONL file.
+ * <p>
+ * {@link #stream()} reads one row at a time, so a source can have any number of rows without being loaded into
+ * memory. Sources are immutable; {@link #where(String)}, {@link #sample(double, long)}, {@link #partition(int, int)}
+ * and {@link #limit(long)} return a narrowed copy and are applied in that order:
+ * <ul>
+ *     <li>Sampling is decided by a hash of the seed and the row's position in the file, so every worker and every run
+ *     with the same seed picks the same rows.</li>
+ *     <li>Partitioning deals the remaining rows out round-robin, so partitions 0..n-1 together cover every selected row
+ *     exactly once and differ in size by at most one. Scenario Outline examples that only list partition numbers let
+ *     parallel threads (and shards, see {@code ScenarioScheduler}) split a large source without duplicates.</li>
+ * </ul>
+ * The location is looked up on the test class path first (e.g. {@code data/catalog.csv}) and then on the file system.
+ * CSV needs a header row; JSONL (also {@code .ndjson}) has one JSON object per line. Either may be gzip-compressed
+ * ({@code .gz}).
+ */
+public final class ExampleSource {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final String location;
+    private final List<Predicate<ExampleRow>> filters;
+    private final List<String> description;
+    private final double sampleRate;
+    private final long seed;
+    private final int partitionIndex;
+    private final int partitionCount;
+    private final long limit;
+
+    private ExampleSource(String location, List<Predicate<ExampleRow>> filters, List<String> description, double sampleRate,
+                          long seed, int partitionIndex, int partitionCount, long limit) {
+        this.location = location;
+        this.filters = filters;
+        this.description = description;
+        this.sampleRate = sampleRate;
+        this.seed = seed;
+        this.partitionIndex = partitionIndex;
+        this.partitionCount = partitionCount;
+        this.limit = limit;
+    }
+
+    /**
+     * Creates a source for every row of a file
+     *
+     * @param location Class path resource or file path ending in .csv, .jsonl or .ndjson, optionally followed by .gz
+     * @return source
+     */
+    public static ExampleSource of(String location) {
+        format(location);
+        return new ExampleSource(location, List.of(), List.of(location), 1.0, 0, 0, 1, 0);
+    }
+
+    /**
+     * Keeps only the rows matching a filter, e.g. {@code pages >= 250 and publisher ~ Reilly}
+     *
+     * @param expression Conditions joined with "and"; operators are = != &lt; &lt;= &gt; &gt;= and ~ (regular expression)
+     * @return narrowed source
+     */
+    public ExampleSource where(String expression) {
+        List<Predicate<ExampleRow>> narrowed = new ArrayList<>(filters);
+        narrowed.add(RowFilter.parse(expression));
+        return new ExampleSource(location, narrowed, describe("where " + expression), sampleRate, seed, partitionIndex,
+                partitionCount, limit);
+    }
+
+    /**
+     * Keeps a reproducible random fraction of the rows
+     *
+     * @param fraction Share of rows to keep, between 0 and 1
+     * @param seed     Seed; the same seed selects the same rows
+     * @return narrowed source
+     */
+    public ExampleSource sample(double fraction, long seed) {
+        if (fraction < 0 || fraction > 1) {
+            throw new IllegalArgumentException("Sample fraction must be between 0 and 1 but was " + fraction);
+        }
+        return new ExampleSource(location, filters, describe("sample " + fraction + " (seed " + seed + ")"), fraction, seed,
+                partitionIndex, partitionCount, limit);
+    }
+
+    /**
+     * Keeps one of several disjoint partitions of the rows
+     *
+     * @param index Partition index, 0-based
+     * @param count Number of partitions
+     * @return narrowed source
+     */
+    public ExampleSource partition(int index, int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Partition must be 0.." + (count - 1) + " of " + count + " but was " + index);
+        }
+        return new ExampleSource(location, filters, describe("partition " + index + "/" + count), sampleRate, seed, index, count,
+                limit);
+    }
+
+    /**
+     * Stops after a number of rows
+     *
+     * @param maxRows Maximum number of rows
+     * @return narrowed source
+     */
+    public ExampleSource limit(long maxRows) {
+        return new ExampleSource(location, filters, describe("limit " + maxRows), sampleRate, seed, partitionIndex,
+                partitionCount, maxRows);
+    }
+
+    /**
+     * Opens the source. The stream holds the file open and must be closed, e.g. with try-with-resources.
+     *
+     * @return lazily read rows, in file order
+     */
+    public Stream<ExampleRow> stream() {
+        BufferedReader reader = open();
+        try {
+            Iterator<ExampleRow> rows = format(location).equals("csv") ? csvRows(reader) : jsonRows(reader);
+            Stream<ExampleRow> stream = StreamSupport.stream(Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                                                     .onClose(() -> close(reader));
+            for (Predicate<ExampleRow> filter : filters) {
+                stream = stream.filter(filter);
+            }
+            if (sampleRate < 1) {
+                stream = stream.filter(row -> sampled(row.number()));
+            }
+            if (partitionCount > 1) {
+                AtomicLong position = new AtomicLong();
+                stream = stream.filter(row -> position.getAndIncrement() % partitionCount == partitionIndex);
+            }
+            return (limit > 0) ? stream.limit(limit) : stream;
+        } catch (RuntimeException e) {
+            close(reader);
+            throw e;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.join(", ", description);
+    }
+
+    private List<String> describe(String step) {
+        List<String> steps = new ArrayList<>(description);
+        steps.add(step);
+        return steps;
+    }
+
+    private boolean sampled(long rowNumber) {
+        // SplitMix64 finalizer: a well-mixed hash of seed and position, independent of which rows were filtered out
+        long z = seed * 0x9E3779B97F4A7C15L + rowNumber;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (z >>> 11) * 0x1.0p-53 < sampleRate;
+    }
+
+    private BufferedReader open() {
+        try {
+            InputStream in = ExampleSource.class.getClassLoader().getResourceAsStream(location);
+            if (in == null) {
+                Path file = Path.of(location);
+                if (!Files.isRegularFile(file)) {
+                    throw new IllegalArgumentException("Example source not found on the class path or file system: " + location);
+                }
+                in = Files.newInputStream(file);
+            }
+            if (location.endsWith(".gz")) {
+                in = new GZIPInputStream(in, 64 * 1024);
+            }
+            return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open example source " + location, e);
+        }
+    }
+
+    private static Iterator<ExampleRow> csvRows(BufferedReader reader) {
+        CsvRecordReader records = new CsvRecordReader(reader);
+        if (!records.hasNext()) {
+            return List.<ExampleRow>of().iterator();
+        }
+        List<String> header = records.next();
+        return new Iterator<>() {
+            private long number;
+
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public ExampleRow next() {
+                List<String> record = records.next();
+                number++;
+                if (record.size() != header.size()) {
+                    throw new IllegalStateException("Row " + number + " has " + record.size() + " fields but the header has " + header.size());
+                }
+                Map<String, String> values = new LinkedHashMap<>();
+                for (int i = 0; i < header.size(); i++) {
+                    values.put(header.get(i), record.get(i));
+                }
+                return new ExampleRow(number, values);
+            }
+        };
+    }
+
+    private static Iterator<ExampleRow> jsonRows(BufferedReader reader) {
+        MappingIterator<JsonNode> objects;
+        try {
+            objects = mapper.readerFor(JsonNode.class).readValues(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Iterator<>() {
+            private long number;
+
+            @Override
+            public boolean hasNext() {
+                return objects.hasNext();
+            }
+
+            @Override
+            public ExampleRow next() {
+                JsonNode object = objects.next();
+                number++;
+                Map<String, String> values = new LinkedHashMap<>();
+                object.fields().forEachRemaining(field -> values.put(field.getKey(), text(field.getValue())));
+                return new ExampleRow(number, values);
+            }
+        };
+    }
+
+    private static String text(JsonNode value) {
+        if (value.isNull()) {
+            return null;
+        }
+        return value.isValueNode() ? value.asText() : value.toString();
+    }
+
+    private static String format(String location) {
+        String name = location.endsWith(".gz") ? location.substring(0, location.length() - 3) : location;
+        if (name.endsWith(".csv")) {
+            return "csv";
+        }
+        if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+            return "jsonl";
+        }
+        throw new IllegalArgumentException("Example source must be .csv, .jsonl or .ndjson (optionally .gz): " + location);
+    }
+
+    private static void close(BufferedReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.bookstore.data;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the row filters of an {@link ExampleSource}, e.g. {@code pages >= 250 and publisher = "O'Reilly Media"}.
+ * <p>
+ * Conditions are joined with {@code and}. Operators are {@code = != < <= > >=} and {@code ~}, which matches a regular
+ * expression anywhere in the value. Comparisons are numeric when both sides are numbers and textual otherwise. Values
+ * may be wrapped in double quotes, which is needed when they contain " and ".
+ * <p>
+ * JSONL rows may leave out optional keys. A missing or null column fails every condition except {@code = null}, so
+ * {@code message ~ required} keeps only the rows that have a matching message.
+ */
+final class RowFilter {
+
+    private static final Pattern CONDITION = Pattern.compile("\\s*([\\w.-]+)\\s*(!=|<=|>=|=|<|>|~)\\s*(.*?)\\s*");
+    private static final Pattern AND = Pattern.compile("\\s+and\\s+(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", Pattern.CASE_INSENSITIVE);
+
+    private RowFilter() {
+    }
+
+    /**
+     * Parses a filter expression
+     *
+     * @param expression Conditions joined with "and"
+     * @return predicate matching the rows that meet every condition
+     * @throws IllegalArgumentException if a condition cannot be parsed
+     */
+    static Predicate<ExampleRow> parse(String expression) {
+        List<Predicate<ExampleRow>> conditions = new ArrayList<>();
+        for (String condition : AND.split(expression.trim())) {
+            Matcher matcher = CONDITION.matcher(condition);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Cannot parse condition '" + condition + "' in filter: " + expression);
+            }
+            conditions.add(condition(matcher.group(1), matcher.group(2), unquote(matcher.group(3))));
+        }
+        return row -> conditions.stream().allMatch(condition -> condition.test(row));
+    }
+
+    private static Predicate<ExampleRow> condition(String column, String operator, String expected) {
+        if (operator.equals("~")) {
+            Pattern pattern = Pattern.compile(expected);
+            return row -> {
+                String actual = row.get(column, null);
+                return actual != null && pattern.matcher(actual).find();
+            };
+        }
+        return row -> {
+            String actual = row.get(column, null);
+            if (actual == null) {
+                return operator.equals("=") && expected.equals("null");
+            }
+            int comparison = compare(actual, expected);
+            return switch (operator) {
+                case "=" -> comparison == 0;
+                case "!=" -> comparison != 0;
+                case "<" -> comparison < 0;
+                case "<=" -> comparison <= 0;
+                case ">" -> comparison > 0;
+                default -> comparison >= 0;
+            };
+        };
+    }
+
+    private static int compare(String actual, String expected) {
+        try {
+            return new BigDecimal(actual.trim()).compareTo(new BigDecimal(expected));
+        } catch (NumberFormatException e) {
+            return actual.compareTo(expected);
+        }
+    }
+
+    private static String unquote(String value) {
+        return (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) ? value.substring(1, value.length() - 1) : value;
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.bookstore.load;
+
+import com.example.bookstore.cassette.CassetteFilter;
+import com.example.bookstore.metrics.HttpMetrics;
+import com.example.bookstore.stepdefs.Hooks;
+import com.example.bookstore.util.ConfigUtil;
+import com.example.bookstore.util.LaunchUtil;
+import com.example.bookstore.util.LoggerUtil;
+import com.example.bookstore.util.TokenCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.cucumber.core.eventbus.EventBus;
+import io.cucumber.core.feature.FeatureParser;
+import io.cucumber.core.filter.Filters;
+import io.cucumber.core.gherkin.Feature;
+import io.cucumber.core.gherkin.Pickle;
+import io.cucumber.core.options.CommandlineOptionsParser;
+import io.cucumber.core.options.CucumberProperties;
+import io.cucumber.core.options.CucumberPropertiesParser;
+import io.cucumber.core.options.RuntimeOptions;
+import io.cucumber.core.plugin.PluginFactory;
+import io.cucumber.core.plugin.Plugins;
+import io.cucumber.core.runtime.BackendServiceLoader;
+import io.cucumber.core.runtime.CucumberExecutionContext;
+import io.cucumber.core.runtime.ExitStatus;
+import io.cucumber.core.runtime.FeaturePathFeatureSupplier;
+import io.cucumber.core.runtime.ObjectFactoryServiceLoader;
+import io.cucumber.core.runtime.ObjectFactorySupplier;
+import io.cucumber.core.runtime.RunnerSupplier;
+import io.cucumber.core.runtime.SynchronizedEventBus;
+import io.cucumber.core.runtime.ThreadLocalObjectFactorySupplier;
+import io.cucumber.core.runtime.ThreadLocalRunnerSupplier;
+import io.cucumber.core.runtime.TimeServiceEventBus;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Replays tagged feature scenarios as load against the Bookstore API, reusing the functional step definitions.
+ * <p>
+ * The features are parsed and the pickles selected once, and each user's thread loads the glue once, before the clock
+ * starts; that setup time is reported separately as setupSeconds. Each simulated user then re-runs the selected pickles
+ * until the duration or the iteration budget is used up, inside a single Cucumber test run. Users are started evenly
+ * over the ramp-up period, and all requests are paced to bookstore.load.targetRps by {@link RateLimitFilter}. Per-step
+ * latency percentiles and error rates are collected by {@link StepStatsPlugin} and written to bookstore.load.reportFile
+ * together with the per-endpoint HTTP summary.
+ * <p>
+ * Users run on virtual threads when the JVM provides them (JDK 21+), otherwise on one platform thread each.
+ * Run it with {@code mvn test-compile exec:java -Pload}; under exec:java a failed run fails the goal, and when started
+ * with {@code java} the process exits non-zero.
+ */
+public class LoadGenerator {
+
+    private static final Logger logger = LoggerUtil.getLogger(LoadGenerator.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private static final String GLUE = "com.example.bookstore.stepdefs";
+    private static final String FEATURES = "classpath:features";
+
+    private static volatile boolean running;
+
+    /**
+     * Returns whether a load run is in progress, so suite-level hooks can skip work meant for a single functional run
+     *
+     * @return true while {@link #main(String[])} is running
+     */
+    public static boolean isRunning() {
+        return running;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int status = run();
+        if (LaunchUtil.launchedDirectly(LoadGenerator.class)) {
+            System.exit(status);
+        }
+        // Under exec:java this JVM is Maven's; fail the goal instead of exiting, so Maven still reports
+        if (status != 0) {
+            throw new IllegalStateException("Load run had no passing scenarios or some scenarios failed");
+        }
+    }
+
+    /**
+     * Runs the load and writes the reports
+     *
+     * @return 0 if scenarios ran and none failed, 1 otherwise
+     */
+    static int run() throws InterruptedException {
+        int users = ConfigUtil.getInt("bookstore.load.users", 10);
+        String tags = ConfigUtil.getString("bookstore.load.tags", "@positive");
+        int durationSeconds = ConfigUtil.getInt("bookstore.load.durationSeconds", 60);
+        int iterations = ConfigUtil.getInt("bookstore.load.iterations", 0);
+        int rampUpSeconds = ConfigUtil.getInt("bookstore.load.rampUpSeconds", 0);
+        double targetRps = Double.parseDouble(ConfigUtil.getString("bookstore.load.targetRps", "0"));
+        Path reportFile = Path.of(ConfigUtil.getString("bookstore.load.reportFile", "target/load-report.json"));
+
+        logger.info("Load run: {} users, tags {}, {}, ramp-up {}s, target {} req/s", users, tags,
+                (iterations > 0) ? iterations + " iterations" : durationSeconds + "s", rampUpSeconds,
+                (targetRps > 0) ? targetRps : "unlimited");
+
+        running = true;
+        long setupStartNanos = System.nanoTime();
+
+        // Parse the features and select the pickles once; every iteration re-runs the same pickles
+        RuntimeOptions options = new CommandlineOptionsParser(System.out)
+                .parse("--glue", GLUE, "--tags", tags, "--plugin", StepStatsPlugin.class.getName(), "--monochrome", FEATURES)
+                .build(new CucumberPropertiesParser().parse(CucumberProperties.fromSystemProperties()).build());
+        Supplier<ClassLoader> classLoader = LoadGenerator.class::getClassLoader;
+        EventBus bus = SynchronizedEventBus.synchronize(new TimeServiceEventBus(Clock.systemUTC(), UUID::randomUUID));
+        ObjectFactorySupplier objectFactories = new ThreadLocalObjectFactorySupplier(new ObjectFactoryServiceLoader(classLoader, options));
+        ExitStatus exitStatus = new ExitStatus(options);
+        Plugins plugins = new Plugins(new PluginFactory(), options);
+        plugins.addPlugin(exitStatus);
+        plugins.setSerialEventBusOnEventListenerPlugins(bus);
+        RunnerSupplier runners = new ThreadLocalRunnerSupplier(options, bus, new BackendServiceLoader(classLoader, objectFactories), objectFactories);
+        CucumberExecutionContext context = new CucumberExecutionContext(bus, exitStatus, runners);
+
+        List<Feature> features = new FeaturePathFeatureSupplier(classLoader, options, new FeatureParser(bus::generateId)).get();
+        Filters filters = new Filters(options);
+        List<Pickle> pickles = features.stream().flatMap(feature -> feature.getPickles().stream()).filter(filters).toList();
+        if (pickles.isEmpty()) {
+            logger.error("No scenarios match tags {}", tags);
+            running = false;
+            return 1;
+        }
+
+        AtomicLong startNanos = new AtomicLong();
+        AtomicLong elapsedNanos = new AtomicLong();
+        AtomicLong setupNanos = new AtomicLong();
+        context.runFeatures(() -> {
+            features.forEach(context::beforeFeature);
+
+            long rampUpStepNanos = (users > 1) ? TimeUnit.SECONDS.toNanos(rampUpSeconds) / (users - 1) : 0;
+            AtomicLong remainingIterations = new AtomicLong((iterations > 0) ? iterations : Long.MAX_VALUE);
+            CountDownLatch ready = new CountDownLatch(users);
+            CountDownLatch go = new CountDownLatch(1);
+            CountDownLatch finished = new CountDownLatch(users);
+
+            ExecutorService executor = createUserExecutor(users);
+            for (int user = 0; user < users; user++) {
+                int userIndex = user;
+                executor.execute(() -> {
+                    try {
+                        // Each user thread gets its own runner; building it loads the glue, so do it before the clock starts
+                        try {
+                            runners.get();
+                        } finally {
+                            ready.countDown();
+                        }
+                        go.await();
+                        sleepUntil(startNanos.get() + userIndex * rampUpStepNanos);
+                        long deadlineNanos = startNanos.get() + TimeUnit.SECONDS.toNanos(durationSeconds);
+                        // A pass over all pickles can take long, so a timed run checks its deadline before every pickle
+                        boolean inTime = true;
+                        while (inTime && remainingIterations.getAndDecrement() > 0) {
+                            for (int i = 0; inTime && i < pickles.size(); i++) {
+                                inTime = iterations > 0 || System.nanoTime() < deadlineNanos;
+                                if (inTime) {
+                                    Pickle pickle = pickles.get(i);
+                                    context.runTestCase(runner -> runner.runPickle(pickle));
+                                }
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (RuntimeException e) {
+                        logger.error("Load user stopped", e);
+                    } finally {
+                        finished.countDown();
+                    }
+                });
+            }
+            ready.await();
+
+            setupNanos.set(System.nanoTime() - setupStartNanos);
+            logger.info("Setup took {} s ({} scenarios, glue loaded for {} users); starting the load",
+                    String.format("%.1f", setupNanos.get() / 1e9), pickles.size(), users);
+            RateLimitFilter.setTargetRate(targetRps);
+            startNanos.set(System.nanoTime());
+            go.countDown();
+            finished.await();
+            elapsedNanos.set(System.nanoTime() - startNanos.get());
+            executor.shutdown();
+        });
+
+        running = false;
+        RateLimitFilter.setTargetRate(0);
+
+        writeReport(reportFile, elapsedNanos.get() / 1e9, setupNanos.get() / 1e9);
+        HttpMetrics.writeSummary(Path.of(ConfigUtil.getString("bookstore.metrics.file", "target/http-metrics.json")));
+        logger.info("Token cache: {}", TokenCache.stats());
+        Hooks.cleanUp();
+        CassetteFilter.close();
+
+        long[] counts = StepStatsPlugin.scenarioCounts();
+        return (counts[0] > 0 && counts[1] == 0) ? 0 : 1;
+    }
+
+    private static void writeReport(Path file, double elapsedSeconds, double setupSeconds) {
+        Map<String, Object> report = StepStatsPlugin.report(elapsedSeconds);
+        report.put("elapsedSeconds", elapsedSeconds);
+        report.put("setupSeconds", setupSeconds);
+
+        long[] counts = StepStatsPlugin.scenarioCounts();
+        logger.info("Load run finished in {} s: {} scenarios ({} failed), {} scenarios/s", String.format("%.1f", elapsedSeconds),
+                counts[0], counts[1], String.format("%.1f", counts[0] / elapsedSeconds));
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            mapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+            logger.info("Load report written to {}", file);
+        } catch (IOException e) {
+            logger.warn("Failed to write load report {}", file, e);
+        }
+    }
+
+    private static ExecutorService createUserExecutor(int users) {
+        try {
+            // JDK 21+; looked up reflectively so the suite still compiles and runs on 17
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.info("Virtual threads not available, running {} users on platform threads", users);
+            return Executors.newFixedThreadPool(users);
+        }
+    }
+
+    private static void sleepUntil(long nanos) throws InterruptedException {
+        long wait = nanos - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
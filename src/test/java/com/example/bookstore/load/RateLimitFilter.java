@@ -0,0 +1,56 @@
+package com.example.bookstore.load;
+
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * RestAssured filter that paces requests across all threads to a target rate. Does nothing until
+ * {@link #setTargetRate(double)} is called with a positive rate, which only the load generator does.
+ */
+public class RateLimitFilter implements Filter {
+
+    private static volatile long intervalNanos;
+    private static final AtomicLong nextSlotNanos = new AtomicLong();
+
+    /**
+     * Sets the rate all instrumented requests are paced to
+     *
+     * @param requestsPerSecond Target rate; 0 or less disables pacing
+     */
+    public static void setTargetRate(double requestsPerSecond) {
+        intervalNanos = (requestsPerSecond > 0) ? (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond) : 0;
+        nextSlotNanos.set(System.nanoTime());
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        long interval = intervalNanos;
+        if (interval > 0) {
+            awaitSlot(interval);
+        }
+        return ctx.next(requestSpec, responseSpec);
+    }
+
+    private static void awaitSlot(long interval) {
+        long now = System.nanoTime();
+        long slot;
+        long current;
+        do {
+            current = nextSlotNanos.get();
+            slot = Math.max(current, now);
+        } while (!nextSlotNanos.compareAndSet(current, slot + interval));
+
+        long wait = slot - now;
+        while (wait > 0) {
+            LockSupport.parkNanos(wait);
+            wait = slot - System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.bookstore.load;
+
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.PickleStepTestStep;
+import io.cucumber.plugin.event.Status;
+import io.cucumber.plugin.event.TestCaseFinished;
+import io.cucumber.plugin.event.TestStepFinished;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cucumber plugin that aggregates step and scenario durations across all load generator runs.
+ * <p>
+ * The statistics live in static state, so {@link LoadGenerator} can read them after the run without a plugin reference.
+ * Steps are keyed by their step definition pattern, so the same step with different arguments shares one histogram.
+ */
+public class StepStatsPlugin implements ConcurrentEventListener {
+
+    private static final class Stats {
+        final Histogram durations = new ConcurrentHistogram(3);
+        final LongAdder failures = new LongAdder();
+    }
+
+    private static final Map<String, Stats> steps = new ConcurrentHashMap<>();
+    private static final Stats scenarios = new Stats();
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        publisher.registerHandlerFor(TestStepFinished.class, StepStatsPlugin::onStepFinished);
+        publisher.registerHandlerFor(TestCaseFinished.class, StepStatsPlugin::onScenarioFinished);
+    }
+
+    private static void onStepFinished(TestStepFinished event) {
+        if (event.getTestStep() instanceof PickleStepTestStep step) {
+            record(steps.computeIfAbsent(step.getPattern(), key -> new Stats()), event.getResult().getStatus(),
+                    event.getResult().getDuration().toNanos());
+        }
+    }
+
+    private static void onScenarioFinished(TestCaseFinished event) {
+        record(scenarios, event.getResult().getStatus(), event.getResult().getDuration().toNanos());
+    }
+
+    private static void record(Stats stats, Status status, long nanos) {
+        stats.durations.recordValue(TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos)));
+        if (status == Status.FAILED) {
+            stats.failures.increment();
+        }
+    }
+
+    /**
+     * Returns the number of finished and failed scenario iterations
+     *
+     * @return {finished, failed}
+     */
+    static long[] scenarioCounts() {
+        return new long[]{scenarios.durations.getTotalCount(), scenarios.failures.sum()};
+    }
+
+    /**
+     * Summarizes scenario and per-step statistics
+     *
+     * @param elapsedSeconds Wall-clock duration of the run, used for throughput
+     * @return report tree ready for JSON serialization
+     */
+    static Map<String, Object> report(double elapsedSeconds) {
+        Map<String, Object> stepReports = new TreeMap<>();
+        steps.forEach((pattern, stats) -> stepReports.put(pattern, summarize(stats, elapsedSeconds)));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("scenarios", summarize(scenarios, elapsedSeconds));
+        report.put("steps", stepReports);
+        return report;
+    }
+
+    private static Map<String, Object> summarize(Stats stats, double elapsedSeconds) {
+        long count = stats.durations.getTotalCount();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", count);
+        summary.put("failures", stats.failures.sum());
+        summary.put("errorRate", (count == 0) ? 0.0 : (double) stats.failures.sum() / count);
+        summary.put("perSecond", (elapsedSeconds <= 0) ? 0.0 : count / elapsedSeconds);
+        summary.put("p50Ms", stats.durations.getValueAtPercentile(50) / 1000.0);
+        summary.put("p95Ms", stats.durations.getValueAtPercentile(95) / 1000.0);
+        summary.put("p99Ms", stats.durations.getValueAtPercentile(99) / 1000.0);
+        summary.put("maxMs", stats.durations.getMaxValue() / 1000.0);
+        return summary;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.bookstore.metrics;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.AbstractHttpClient;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.params.HttpParams;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+
+/**
+ * HttpClient 4.x hooks that feed DNS, connect, TLS and time-to-first-byte marks into the current {@link RequestTiming}.
+ * Pooled connections skip DNS, connect and TLS entirely, so those phases only show up for requests that opened a new
+ * connection.
+ */
+@SuppressWarnings("deprecation") // RestAssured 5 still requires the HttpClient 4.x AbstractHttpClient API
+public class ConnectionTimers {
+
+    /**
+     * Returns a DNS resolver that records lookup time
+     *
+     * @return DnsResolver
+     */
+    public static DnsResolver dnsResolver() {
+        return host -> {
+            long start = System.nanoTime();
+            try {
+                return SystemDefaultDnsResolver.INSTANCE.resolve(host);
+            } finally {
+                RequestTiming timing = RequestTiming.current();
+                if (timing != null) {
+                    timing.dnsNanos += System.nanoTime() - start;
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a plain socket factory that records TCP connect time
+     *
+     * @return PlainSocketFactory
+     */
+    public static PlainSocketFactory plainSocketFactory() {
+        return new PlainSocketFactory() {
+            @Override
+            public Socket connectSocket(Socket socket, InetSocketAddress remoteAddress, InetSocketAddress localAddress, HttpParams params) throws IOException, ConnectTimeoutException {
+                long start = System.nanoTime();
+                try {
+                    return super.connectSocket(socket, remoteAddress, localAddress, params);
+                } finally {
+                    RequestTiming timing = RequestTiming.current();
+                    if (timing != null) {
+                        timing.connectNanos += System.nanoTime() - start;
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns an SSL socket factory that splits connection setup into TCP connect and TLS handshake time
+     *
+     * @param sslContext SSL context shared by all connections
+     * @return SSLSocketFactory accepting any host name
+     */
+    public static SSLSocketFactory sslSocketFactory(SSLContext sslContext) {
+        return new SSLSocketFactory(sslContext, SSLSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER) {
+            private final ThreadLocal<Long> handshakeStart = new ThreadLocal<>();
+
+            @Override
+            public Socket connectSocket(Socket socket, InetSocketAddress remoteAddress, InetSocketAddress localAddress, HttpParams params) throws IOException, UnknownHostException, ConnectTimeoutException {
+                long start = System.nanoTime();
+                handshakeStart.remove();
+                try {
+                    return super.connectSocket(socket, remoteAddress, localAddress, params);
+                } finally {
+                    long end = System.nanoTime();
+                    Long tlsStart = handshakeStart.get();
+                    handshakeStart.remove();
+                    RequestTiming timing = RequestTiming.current();
+                    if (timing != null) {
+                        timing.connectNanos += ((tlsStart != null) ? tlsStart : end) - start;
+                        timing.tlsNanos += (tlsStart != null) ? end - tlsStart : 0;
+                    }
+                }
+            }
+
+            @Override
+            protected void prepareSocket(SSLSocket socket) throws IOException {
+                handshakeStart.set(System.nanoTime());
+                super.prepareSocket(socket);
+            }
+        };
+    }
+
+    /**
+     * Adds interceptors that record request size and the time the response headers arrived
+     *
+     * @param client HttpClient used by RestAssured
+     */
+    public static void instrument(AbstractHttpClient client) {
+        client.addRequestInterceptor((request, context) -> {
+            RequestTiming timing = RequestTiming.current();
+            if (timing != null && request instanceof HttpEntityEnclosingRequest enclosing && enclosing.getEntity() != null) {
+                timing.requestBytes = enclosing.getEntity().getContentLength();
+            }
+        });
+        client.addResponseInterceptor((response, context) -> {
+            RequestTiming timing = RequestTiming.current();
+            if (timing != null) {
+                timing.firstByteNanos = System.nanoTime();
+                HttpEntity entity = response.getEntity();
+                timing.responseBytes = (entity == null) ? 0 : entity.getContentLength();
+            }
+        });
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.bookstore.metrics;
+
+import com.example.bookstore.util.LoggerUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-endpoint latency histograms for every request sent through {@link TimingFilter}.
+ * <p>
+ * Endpoints are keyed by method and path template (e.g. "GET /Account/v1/User/{userId}"). Each phase is recorded in
+ * microseconds into a lock-free HdrHistogram, so recording costs a few array increments. Requests sent by the scenario
+ * thread are also collected per scenario so they can be attached to the Cucumber report.
+ * <p>
+ * Requests sent outside a scenario (pool refills and token fetches on background threads, cleanup deletes) are kept
+ * in histograms of their own, so they do not skew the latencies the scenarios saw.
+ */
+public class HttpMetrics {
+
+    /**
+     * One finished request, in milliseconds
+     */
+    public record Sample(String endpoint, int status, double dnsMs, double connectMs, double tlsMs, double ttfbMs,
+                         double totalMs, long requestBytes, long responseBytes) {
+    }
+
+    private static final class EndpointStats {
+        final Histogram total = new ConcurrentHistogram(3);
+        final Histogram ttfb = new ConcurrentHistogram(3);
+        final Histogram dns = new ConcurrentHistogram(3);
+        final Histogram connect = new ConcurrentHistogram(3);
+        final Histogram tls = new ConcurrentHistogram(3);
+        final LongAdder errors = new LongAdder();
+        final LongAdder requestBytes = new LongAdder();
+        final LongAdder responseBytes = new LongAdder();
+    }
+
+    private static final Logger logger = LoggerUtil.getLogger(HttpMetrics.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private static final Map<String, EndpointStats> scenarioEndpoints = new ConcurrentHashMap<>();
+    private static final Map<String, EndpointStats> backgroundEndpoints = new ConcurrentHashMap<>();
+    private static final ThreadLocal<List<Sample>> scenarioSamples = new ThreadLocal<>();
+
+    /**
+     * Starts collecting the samples of requests sent from this thread
+     */
+    public static void startScenario() {
+        scenarioSamples.set(new ArrayList<>());
+    }
+
+    /**
+     * Stops collecting samples for this thread
+     *
+     * @return samples recorded since {@link #startScenario()}
+     */
+    public static List<Sample> finishScenario() {
+        List<Sample> samples = scenarioSamples.get();
+        scenarioSamples.remove();
+        return (samples == null) ? List.of() : samples;
+    }
+
+    /**
+     * Returns the samples collected on this thread so far, without ending the collection
+     *
+     * @return samples recorded since {@link #startScenario()}, or an empty list when not collecting
+     */
+    public static List<Sample> scenarioSamples() {
+        List<Sample> samples = scenarioSamples.get();
+        return (samples == null) ? List.of() : Collections.unmodifiableList(samples);
+    }
+
+    /**
+     * Serializes samples for a report attachment
+     *
+     * @param samples Samples
+     * @return JSON bytes
+     */
+    public static byte[] toJson(List<Sample> samples) {
+        try {
+            return mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(samples);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to serialize HTTP samples", e);
+        }
+    }
+
+    /**
+     * Writes p50/p95/p99/max per endpoint and phase to a JSON file, for requests sent by scenarios and for requests
+     * sent outside any scenario separately
+     *
+     * @param file Target file
+     */
+    public static void writeSummary(Path file) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("scenarios", summarize(scenarioEndpoints));
+        summary.put("background", summarize(backgroundEndpoints));
+
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            mapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), summary);
+            logger.info("HTTP latency summary for {} scenario and {} background endpoints written to {}",
+                    scenarioEndpoints.size(), backgroundEndpoints.size(), file);
+        } catch (IOException e) {
+            logger.warn("Failed to write HTTP latency summary to {}", file, e);
+        }
+    }
+
+    static void record(String endpoint, int status, RequestTiming timing, long endNanos) {
+        long totalNanos = endNanos - timing.startNanos;
+        long ttfbNanos = (timing.firstByteNanos > 0) ? timing.firstByteNanos - timing.startNanos : totalNanos;
+
+        // Only threads inside a scenario collect samples; anything else is background traffic
+        List<Sample> samples = scenarioSamples.get();
+        Map<String, EndpointStats> endpoints = (samples != null) ? scenarioEndpoints : backgroundEndpoints;
+        EndpointStats stats = endpoints.computeIfAbsent(endpoint, key -> new EndpointStats());
+        stats.total.recordValue(micros(totalNanos));
+        stats.ttfb.recordValue(micros(ttfbNanos));
+        stats.dns.recordValue(micros(timing.dnsNanos));
+        stats.connect.recordValue(micros(timing.connectNanos));
+        stats.tls.recordValue(micros(timing.tlsNanos));
+        stats.requestBytes.add(Math.max(0, timing.requestBytes));
+        stats.responseBytes.add(Math.max(0, timing.responseBytes));
+        if (status >= 500 || status == 0) {
+            stats.errors.increment();
+        }
+
+        if (samples != null) {
+            samples.add(new Sample(endpoint, status, millis(timing.dnsNanos), millis(timing.connectNanos), millis(timing.tlsNanos),
+                    millis(ttfbNanos), millis(totalNanos), timing.requestBytes, timing.responseBytes));
+        }
+    }
+
+    private static Map<String, Object> summarize(Map<String, EndpointStats> endpoints) {
+        Map<String, Object> summary = new TreeMap<>();
+        endpoints.forEach((endpoint, stats) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("count", stats.total.getTotalCount());
+            entry.put("errors", stats.errors.sum());
+            entry.put("requestBytes", stats.requestBytes.sum());
+            entry.put("responseBytes", stats.responseBytes.sum());
+            entry.put("totalMs", percentiles(stats.total));
+            entry.put("ttfbMs", percentiles(stats.ttfb));
+            entry.put("dnsMs", percentiles(stats.dns));
+            entry.put("connectMs", percentiles(stats.connect));
+            entry.put("tlsMs", percentiles(stats.tls));
+            summary.put(endpoint, entry);
+        });
+        return summary;
+    }
+
+    private static Map<String, Double> percentiles(Histogram histogram) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        values.put("p50", histogram.getValueAtPercentile(50) / 1000.0);
+        values.put("p95", histogram.getValueAtPercentile(95) / 1000.0);
+        values.put("p99", histogram.getValueAtPercentile(99) / 1000.0);
+        values.put("max", histogram.getMaxValue() / 1000.0);
+        return values;
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+    }
+
+    private static double millis(long nanos) {
+        return Math.max(0, nanos) / 1_000_000.0;
+    }
+}
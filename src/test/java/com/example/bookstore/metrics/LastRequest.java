@@ -0,0 +1,98 @@
+package com.example.bookstore.metrics;
+
+import com.example.bookstore.util.ApiClient;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.RequestSpecification;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The last request sent from a thread, kept by {@link TimingFilter} so it can be sent again, e.g. to measure its latency
+ * distribution under concurrency. The path as the caller wrote it and the path, query and form parameters are kept
+ * apart and applied the same way again, so the repeated request is built exactly like the original one: filters that
+ * key on the derived path and the query parameters, such as the cassette, see the same request. Capturing copies the
+ * few parameters and keeps references to the already built headers and body, so it adds nothing measurable to a
+ * request.
+ *
+ * @param method      HTTP method
+ * @param path        Path as passed to RestAssured, with its path parameter placeholders
+ * @param derivedPath Path with the path parameters filled in, without base URI and query string
+ * @param pathParams  Path parameters
+ * @param queryParams Query parameters
+ * @param formParams  Form parameters
+ * @param headers     Request headers
+ * @param contentType Content-Type, or null when the request had none
+ * @param body        Body as handed to RestAssured, or null
+ */
+public record LastRequest(String method, String path, String derivedPath, Map<String, String> pathParams,
+                          Map<String, String> queryParams, Map<String, String> formParams, Headers headers, String contentType,
+                          Object body) {
+
+    private static final ThreadLocal<LastRequest> last = new ThreadLocal<>();
+
+    /**
+     * Returns the last request sent from the calling thread
+     *
+     * @return last request, empty when this thread has not sent one yet
+     */
+    public static Optional<LastRequest> current() {
+        return Optional.ofNullable(last.get());
+    }
+
+    /**
+     * Sends the same request again from the calling thread
+     *
+     * @return response
+     */
+    public Response send() {
+        RequestSpecification request = ApiClient.request();
+        for (Header header : headers) {
+            // RestAssured keeps Content-Type apart from the other headers, so it is set on its own below
+            if (!"Content-Type".equalsIgnoreCase(header.getName())) {
+                request.header(header);
+            }
+        }
+        if (contentType != null) {
+            request.contentType(contentType);
+        }
+        if (!pathParams.isEmpty()) {
+            request.pathParams(pathParams);
+        }
+        if (!queryParams.isEmpty()) {
+            request.queryParams(queryParams);
+        }
+        if (!formParams.isEmpty()) {
+            request.formParams(formParams);
+        }
+        // body(Object) would serialize a byte array or string again, so the already rendered forms are passed as is
+        if (body instanceof byte[] bytes) {
+            request.body(bytes);
+        } else if (body instanceof String text) {
+            request.body(text);
+        } else if (body != null) {
+            request.body(body);
+        }
+        return request.request(method, path);
+    }
+
+    /**
+     * Returns the endpoint key this request is recorded under in {@link HttpMetrics}
+     *
+     * @return endpoint key, e.g. "GET /BookStore/v1/Books"
+     */
+    public String endpoint() {
+        return TimingFilter.endpoint(method, derivedPath);
+    }
+
+    static void capture(FilterableRequestSpecification requestSpec) {
+        last.set(new LastRequest(requestSpec.getMethod(), requestSpec.getUserDefinedPath(), requestSpec.getDerivedPath(),
+                new LinkedHashMap<>(requestSpec.getPathParams()), new LinkedHashMap<>(requestSpec.getQueryParams()),
+                new LinkedHashMap<>(requestSpec.getFormParams()), requestSpec.getHeaders(), requestSpec.getContentType(),
+                requestSpec.getBody()));
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.bookstore.metrics;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latency distribution of a set of {@link HttpMetrics.Sample}s, used by latency budget assertions.
+ * <p>
+ * Total times are recorded in microseconds into an HdrHistogram with three significant digits, like the per-endpoint
+ * histograms. {@link #describe()} prints the summary and the full percentile table, so a failed budget shows the whole
+ * distribution instead of a single number.
+ */
+public final class LatencyDistribution {
+
+    private final Histogram histogram = new Histogram(3);
+    private final Map<Integer, Long> statuses = new TreeMap<>();
+
+    private LatencyDistribution() {
+    }
+
+    /**
+     * Builds the distribution of the given samples' total times
+     *
+     * @param samples Samples
+     * @return distribution
+     */
+    public static LatencyDistribution of(List<HttpMetrics.Sample> samples) {
+        LatencyDistribution distribution = new LatencyDistribution();
+        for (HttpMetrics.Sample sample : samples) {
+            distribution.histogram.recordValue(Math.round(sample.totalMs() * 1000));
+            distribution.statuses.merge(sample.status(), 1L, Long::sum);
+        }
+        return distribution;
+    }
+
+    /**
+     * Returns the number of recorded requests
+     *
+     * @return count
+     */
+    public long count() {
+        return histogram.getTotalCount();
+    }
+
+    /**
+     * Returns the latency at a percentile
+     *
+     * @param percentile Percentile between 0 and 100
+     * @return latency in milliseconds
+     */
+    public double percentileMs(double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * Returns how many requests ended with each status; 0 stands for requests that got no response
+     *
+     * @return counts by status
+     */
+    public Map<Integer, Long> statuses() {
+        return statuses;
+    }
+
+    /**
+     * Returns a one-line summary of count, statuses and the main percentiles
+     *
+     * @return summary
+     */
+    public String summary() {
+        return String.format("%d requests %s, min %.1f ms, mean %.1f ms, p50 %.1f ms, p90 %.1f ms, p95 %.1f ms, p99 %.1f ms, max %.1f ms",
+                count(), statuses, histogram.getMinValue() / 1000.0, histogram.getMean() / 1000.0, percentileMs(50),
+                percentileMs(90), percentileMs(95), percentileMs(99), histogram.getMaxValue() / 1000.0);
+    }
+
+    /**
+     * Returns the summary followed by the full percentile distribution in milliseconds
+     *
+     * @return multi-line description
+     */
+    public String describe() {
+        if (count() == 0) {
+            return "no requests recorded";
+        }
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        try (PrintStream out = new PrintStream(table, true, StandardCharsets.UTF_8)) {
+            histogram.outputPercentileDistribution(out, 2, 1000.0);
+        }
+        return summary() + System.lineSeparator() + table.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.bookstore.metrics;
+
+/**
+ * Timing marks of the HTTP request currently running on this thread.
+ * <p>
+ * {@link TimingFilter} opens a timing before the request is handed to HttpClient and closes it when the response is
+ * back. HttpClient runs connection setup and the exchange on the calling thread, so the DNS resolver, socket factories
+ * and interceptors installed by {@link ConnectionTimers} can add their marks through {@link #current()}.
+ */
+public class RequestTiming {
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    final long startNanos = System.nanoTime();
+    long dnsNanos;
+    long connectNanos;
+    long tlsNanos;
+    long firstByteNanos;
+    long requestBytes;
+    long responseBytes = -1;
+
+    /**
+     * Returns the timing of the request running on this thread
+     *
+     * @return timing, or null when no instrumented request is running
+     */
+    static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    static RequestTiming begin() {
+        RequestTiming timing = new RequestTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.bookstore.metrics;
+
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+/**
+ * RestAssured filter that times every request and records it in {@link HttpMetrics}. It also keeps the request as the
+ * thread's {@link LastRequest}, so performance steps can send it again.
+ */
+public class TimingFilter implements Filter {
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        String endpoint = endpoint(requestSpec.getMethod(), requestSpec.getDerivedPath());
+        LastRequest.capture(requestSpec);
+        RequestTiming timing = RequestTiming.begin();
+        int status = 0;
+        try {
+            Response response = ctx.next(requestSpec, responseSpec);
+            status = response.getStatusCode();
+            // Buffering the body also hands the connection back to the pool when the caller never reads the body
+            byte[] body = response.asByteArray();
+            if (timing.responseBytes < 0) {
+                timing.responseBytes = body.length;
+            }
+            return response;
+        } finally {
+            HttpMetrics.record(endpoint, status, timing, System.nanoTime());
+            RequestTiming.end();
+        }
+    }
+
+    /**
+     * Maps a concrete request path to its endpoint template so path parameters don't split the histograms
+     *
+     * @param method HTTP method
+     * @param path   Request path without base URI
+     * @return endpoint key, e.g. "PUT /BookStore/v1/Books/{isbn}"
+     */
+    static String endpoint(String method, String path) {
+        String template = path;
+        if (path.startsWith("/Account/v1/User/")) {
+            template = "/Account/v1/User/{userId}";
+        } else if (path.startsWith("/BookStore/v1/Books/")) {
+            template = "/BookStore/v1/Books/{isbn}";
+        }
+        return method + " " + template;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.bookstore.model;
+
+/**
+ * A book as returned by the catalog and user collection endpoints
+ */
+public record Book(String isbn, String title, String subTitle, String author, String publishDate, String publisher,
+                   Integer pages, String description, String website) {
+}
@@ -0,0 +1,9 @@
+package com.example.bookstore.model;
+
+import java.util.List;
+
+/**
+ * Body of GET /BookStore/v1/Books
+ */
+public record BookCollection(List<Book> books) {
+}
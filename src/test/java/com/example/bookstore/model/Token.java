@@ -0,0 +1,7 @@
+package com.example.bookstore.model;
+
+/**
+ * Body of POST /Account/v1/GenerateToken; token and expires are null when authorization failed
+ */
+public record Token(String token, String expires, String status, String result) {
+}
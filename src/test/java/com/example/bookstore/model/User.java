@@ -0,0 +1,9 @@
+package com.example.bookstore.model;
+
+import java.util.List;
+
+/**
+ * Body of the create user (userID) and get user (userId) responses
+ */
+public record User(String userId, String username, List<Book> books) {
+}
@@ -0,0 +1,230 @@
+package com.example.bookstore.report;
+
+import com.example.bookstore.report.MessageIndex.Pointer;
+import com.example.bookstore.report.MessageIndex.ScenarioRun;
+import com.example.bookstore.report.MessageIndex.StepRun;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the classic Cucumber JSON report (the format of the {@code json:} plugin) from a {@link MessageIndex}.
+ * <p>
+ * The document is generated as a stream, one scenario at a time; attachments are read back from the message streams
+ * only when their step is written.
+ */
+final class CucumberJsonWriter {
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    private final MessageIndex index;
+
+    CucumberJsonWriter(MessageIndex index) {
+        this.index = index;
+    }
+
+    void write(OutputStream out) throws IOException {
+        Map<String, List<ScenarioRun>> byFeature = new LinkedHashMap<>();
+        for (ScenarioRun run : index.scenarioRuns()) {
+            byFeature.computeIfAbsent(run.uri(), uri -> new ArrayList<>()).add(run);
+        }
+
+        try (JsonGenerator json = factory.createGenerator(out)) {
+            json.writeStartArray();
+            for (Map.Entry<String, List<ScenarioRun>> feature : byFeature.entrySet()) {
+                writeFeature(json, feature.getKey(), feature.getValue());
+            }
+            json.writeEndArray();
+        }
+    }
+
+    private void writeFeature(JsonGenerator json, String uri, List<ScenarioRun> runs) throws IOException {
+        JsonNode feature = index.documents().get(uri).path("feature");
+
+        json.writeStartObject();
+        json.writeNumberField("line", feature.path("location").path("line").asInt());
+        json.writeArrayFieldStart("elements");
+        for (ScenarioRun run : runs) {
+            // A stream whose copy of the feature differs from the first has its own node IDs
+            JsonNode runFeature = index.document(run.documentStream(), uri).path("feature");
+            Set<String> backgroundSteps = backgroundSteps(runFeature);
+            List<StepRun> background = new ArrayList<>();
+            List<StepRun> steps = new ArrayList<>();
+            List<StepRun> before = new ArrayList<>();
+            List<StepRun> after = new ArrayList<>();
+            for (StepRun step : run.steps()) {
+                if (step.hook()) {
+                    (steps.isEmpty() && background.isEmpty() ? before : after).add(step);
+                } else if (backgroundSteps.contains(step.pickleStep().path("astNodeIds").path(0).asText())) {
+                    background.add(step);
+                } else {
+                    steps.add(step);
+                }
+            }
+            if (!background.isEmpty()) {
+                writeBackground(json, run.documentStream(), uri, runFeature, background);
+            }
+            writeScenario(json, run.documentStream(), uri, runFeature, run, before, steps, after);
+        }
+        json.writeEndArray();
+        json.writeStringField("name", feature.path("name").asText());
+        json.writeStringField("description", feature.path("description").asText());
+        json.writeStringField("id", slug(feature.path("name").asText()));
+        json.writeStringField("keyword", feature.path("keyword").asText());
+        json.writeStringField("uri", uri);
+        writeTags(json, feature.path("tags"));
+        json.writeEndObject();
+    }
+
+    private void writeBackground(JsonGenerator json, int stream, String uri, JsonNode feature, List<StepRun> steps) throws IOException {
+        JsonNode background = null;
+        for (JsonNode child : feature.path("children")) {
+            if (child.has("background")) {
+                background = child.path("background");
+            }
+        }
+        json.writeStartObject();
+        if (background != null) {
+            json.writeNumberField("line", background.path("location").path("line").asInt());
+            json.writeStringField("name", background.path("name").asText());
+            json.writeStringField("description", background.path("description").asText());
+            json.writeStringField("keyword", background.path("keyword").asText());
+        }
+        json.writeStringField("type", "background");
+        writeSteps(json, "steps", stream, uri, steps);
+        json.writeEndObject();
+    }
+
+    private void writeScenario(JsonGenerator json, int stream, String uri, JsonNode feature, ScenarioRun run, List<StepRun> before,
+                               List<StepRun> steps, List<StepRun> after) throws IOException {
+        JsonNode astNodeIds = run.pickle().path("astNodeIds");
+        JsonNode scenario = index.astNode(stream, uri, astNodeIds.path(0).asText());
+        String id = slug(feature.path("name").asText()) + ";" + slug(scenario.path("name").asText());
+        if (astNodeIds.size() > 1) {
+            id += ";;" + run.line();
+        }
+
+        json.writeStartObject();
+        json.writeStringField("start_timestamp", run.started().toString());
+        json.writeNumberField("line", run.line());
+        json.writeStringField("name", run.pickle().path("name").asText());
+        json.writeStringField("description", scenario.path("description").asText());
+        json.writeStringField("id", id);
+        json.writeStringField("type", "scenario");
+        json.writeStringField("keyword", scenario.path("keyword").asText());
+        writeTags(json, run.pickle().path("tags"));
+        writeSteps(json, "before", stream, uri, before);
+        writeSteps(json, "steps", stream, uri, steps);
+        writeSteps(json, "after", stream, uri, after);
+        json.writeEndObject();
+    }
+
+    private void writeSteps(JsonGenerator json, String field, int stream, String uri, List<StepRun> steps) throws IOException {
+        if (steps.isEmpty()) {
+            return;
+        }
+        json.writeArrayFieldStart(field);
+        for (StepRun step : steps) {
+            json.writeStartObject();
+            if (!step.hook()) {
+                JsonNode gherkinStep = index.astNode(stream, uri, step.pickleStep().path("astNodeIds").path(0).asText());
+                json.writeNumberField("line", gherkinStep.path("location").path("line").asInt());
+                json.writeStringField("name", step.pickleStep().path("text").asText());
+                json.writeStringField("keyword", gherkinStep.path("keyword").asText());
+                writeArgument(json, step.pickleStep().path("argument"));
+            }
+            json.writeObjectFieldStart("match");
+            if (step.location() != null) {
+                json.writeStringField("location", step.location());
+            }
+            json.writeEndObject();
+            json.writeObjectFieldStart("result");
+            json.writeStringField("status", step.status());
+            if (step.durationNanos() > 0) {
+                json.writeNumberField("duration", step.durationNanos());
+            }
+            if (step.errorMessage() != null) {
+                json.writeStringField("error_message", step.errorMessage());
+            }
+            json.writeEndObject();
+            writeEmbeddings(json, step.attachments());
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+    }
+
+    private static void writeArgument(JsonGenerator json, JsonNode argument) throws IOException {
+        if (argument.has("docString")) {
+            json.writeObjectFieldStart("doc_string");
+            json.writeStringField("value", argument.path("docString").path("content").asText());
+            json.writeEndObject();
+        } else if (argument.has("dataTable")) {
+            json.writeArrayFieldStart("rows");
+            for (JsonNode row : argument.path("dataTable").path("rows")) {
+                json.writeStartObject();
+                json.writeArrayFieldStart("cells");
+                for (JsonNode cell : row.path("cells")) {
+                    json.writeString(cell.path("value").asText());
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+    }
+
+    private void writeEmbeddings(JsonGenerator json, List<Pointer> attachments) throws IOException {
+        if (attachments.isEmpty()) {
+            return;
+        }
+        json.writeArrayFieldStart("embeddings");
+        for (Pointer pointer : attachments) {
+            JsonNode attachment = index.readLine(pointer).path("attachment");
+            String body = attachment.path("body").asText();
+            json.writeStartObject();
+            json.writeStringField("data", "BASE64".equals(attachment.path("contentEncoding").asText()) ? body
+                    : Base64.getEncoder().encodeToString(body.getBytes(StandardCharsets.UTF_8)));
+            json.writeStringField("mime_type", attachment.path("mediaType").asText());
+            if (attachment.has("fileName")) {
+                json.writeStringField("name", attachment.path("fileName").asText());
+            }
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+    }
+
+    private static void writeTags(JsonGenerator json, JsonNode tags) throws IOException {
+        json.writeArrayFieldStart("tags");
+        for (JsonNode tag : tags) {
+            json.writeStartObject();
+            json.writeStringField("name", tag.path("name").asText());
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+    }
+
+    private static Set<String> backgroundSteps(JsonNode container) {
+        Set<String> ids = new HashSet<>();
+        for (JsonNode child : container.path("children")) {
+            child.path("background").path("steps").forEach(step -> ids.add(step.path("id").asText()));
+            ids.addAll(backgroundSteps(child.path("rule")));
+        }
+        return ids;
+    }
+
+    private static String slug(String name) {
+        return name.toLowerCase(Locale.ROOT).replaceAll("\\s+", "-");
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.bookstore.report;
+
+import io.cucumber.core.plugin.HtmlFormatter;
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EventPublisher;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Cucumber's HTML report of the run, named like the {@link MessageStreamPlugin} stream: sharded runs write
+ * {@code cucumber-shard-<index>.html} instead of {@code cucumber.html}, so shards sharing a directory don't overwrite
+ * each other's report, and {@link ReportMerger} writes the combined {@code cucumber.html}.
+ */
+public class HtmlReportPlugin implements ConcurrentEventListener {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final HtmlFormatter formatter;
+
+    public HtmlReportPlugin() {
+        Path file = MessageStreamPlugin.reportFile("html");
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE);
+            formatter = new HtmlFormatter(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open HTML report " + file, e);
+        }
+    }
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        formatter.setEventPublisher(publisher);
+    }
+}
@@ -0,0 +1,479 @@
+package com.example.bookstore.report;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What a report needs from one or more Cucumber message streams (NDJSON), read in a single streaming pass.
+ * <p>
+ * Gherkin documents, pickles, test cases and step results are kept; attachments are not. For those only the position
+ * of their line in the stream file is recorded, and {@link #readLine(Pointer)} fetches them again while the report is
+ * written, so memory use doesn't grow with the amount of attached logs. Message IDs are only unique within one stream,
+ * so they are qualified with the stream's index.
+ * <p>
+ * Every stream parses the feature files itself, so the same feature comes with different AST node IDs from each stream.
+ * The first stream's document of a feature is the one reported; the nodes of an identical document from a later
+ * stream are mapped onto it by position, see {@link #withDocumentIds(int, JsonNode)}. A document that differs, e.g. in
+ * streams of different commits, is reported separately.
+ */
+final class MessageIndex implements AutoCloseable {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final JsonFactory factory = mapper.getFactory();
+
+    /**
+     * Position of one NDJSON line
+     */
+    record Pointer(Path file, long offset, int length) {
+    }
+
+    /**
+     * One executed step or hook of a scenario
+     *
+     * @param pickleStep  Pickle step, or null for a hook
+     * @param hook        True for hooks
+     * @param location    Step definition or hook method, or null if undefined
+     * @param attachments Attachments added while the step ran
+     */
+    record StepRun(JsonNode pickleStep, boolean hook, String location, String status, long durationNanos, String errorMessage,
+                   List<Pointer> attachments) {
+    }
+
+    /**
+     * The final attempt of one scenario
+     *
+     * @param documentStream Index of the stream whose copy of the document the pickle's AST node IDs refer to
+     * @param line           Line of the scenario, or of the example row for scenario outlines
+     */
+    record ScenarioRun(int documentStream, String uri, int line, JsonNode pickle, Instant started, List<StepRun> steps) {
+    }
+
+    private final Map<String, JsonNode> documents = new LinkedHashMap<>();
+    private final Map<String, Integer> documentStreams = new HashMap<>();
+    private final Map<String, JsonNode> streamDocuments = new HashMap<>();
+    private final Map<String, Map<String, JsonNode>> astNodes = new HashMap<>();
+    private final Map<String, String> documentIds = new HashMap<>();
+    private final Set<String> separateDocuments = new HashSet<>();
+    private final Map<String, JsonNode> pickles = new HashMap<>();
+    private final Map<String, JsonNode> testCases = new HashMap<>();
+    private final Map<String, String> locations = new HashMap<>();
+    private final Map<String, JsonNode> started = new LinkedHashMap<>();
+    private final Map<String, Map<String, JsonNode>> results = new HashMap<>();
+    private final Map<String, List<Pointer>> attachments = new HashMap<>();
+    private final Set<String> retried = new HashSet<>();
+    private final Set<String> referencedPickles = new HashSet<>();
+    private final Map<Path, SeekableByteChannel> channels = new HashMap<>();
+
+    private Instant runStarted;
+    private Instant runFinished;
+    private boolean success = true;
+    private int streams;
+
+    /**
+     * Adds a message stream to the index
+     *
+     * @param file NDJSON file
+     */
+    void add(Path file) throws IOException {
+        int stream = streams++;
+        try (LineReader lines = new LineReader(file)) {
+            byte[] line;
+            while ((line = lines.next()) != null) {
+                index(stream, file, lines.offset(), line);
+            }
+        }
+    }
+
+    private void index(int stream, Path file, long offset, byte[] line) throws IOException {
+        try (JsonParser parser = factory.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT || parser.nextToken() != JsonToken.FIELD_NAME) {
+                return;
+            }
+            String type = parser.getCurrentName();
+            parser.nextToken();
+            if (type.equals("attachment")) {
+                indexAttachment(stream, file, offset, line.length, parser);
+                return;
+            }
+            if (!isIndexed(type)) {
+                return;
+            }
+            JsonNode message = mapper.readTree(parser);
+            switch (type) {
+                case "gherkinDocument" -> addDocument(stream, message);
+                case "pickle" -> pickles.put(id(stream, message.path("id")), message);
+                case "testCase" -> {
+                    testCases.put(id(stream, message.path("id")), message);
+                    referencedPickles.add(id(stream, message.path("pickleId")));
+                }
+                case "stepDefinition", "hook" -> locations.put(id(stream, message.path("id")), location(message.path("sourceReference")));
+                case "testCaseStarted" -> started.put(id(stream, message.path("id")), qualify(stream, message));
+                case "testStepFinished" -> results.computeIfAbsent(id(stream, message.path("testCaseStartedId")), key -> new HashMap<>())
+                                                  .put(id(stream, message.path("testStepId")), message.path("testStepResult"));
+                case "testCaseFinished" -> {
+                    if (message.path("willBeRetried").asBoolean()) {
+                        retried.add(id(stream, message.path("testCaseStartedId")));
+                    }
+                }
+                case "testRunStarted" -> {
+                    Instant timestamp = timestamp(message.path("timestamp"));
+                    runStarted = (runStarted == null || timestamp.isBefore(runStarted)) ? timestamp : runStarted;
+                }
+                case "testRunFinished" -> {
+                    Instant timestamp = timestamp(message.path("timestamp"));
+                    runFinished = (runFinished == null || timestamp.isAfter(runFinished)) ? timestamp : runFinished;
+                    success &= message.path("success").asBoolean(true);
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    private static boolean isIndexed(String type) {
+        return switch (type) {
+            case "gherkinDocument", "pickle", "testCase", "stepDefinition", "hook", "testCaseStarted", "testStepFinished",
+                    "testCaseFinished", "testRunStarted", "testRunFinished" -> true;
+            default -> false;
+        };
+    }
+
+    private void indexAttachment(int stream, Path file, long offset, int length, JsonParser parser) throws IOException {
+        String startedId = null;
+        String stepId = null;
+        // The body is never decoded: the parser skips over string values that aren't read
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("testCaseStartedId")) {
+                startedId = parser.getText();
+            } else if (field.equals("testStepId")) {
+                stepId = parser.getText();
+            } else if (value.isStructStart()) {
+                parser.skipChildren();
+            }
+        }
+        if (startedId != null && stepId != null) {
+            attachments.computeIfAbsent(stream + "/" + startedId + "/" + stepId, key -> new ArrayList<>())
+                       .add(new Pointer(file, offset, length));
+        }
+    }
+
+    private void addDocument(int stream, JsonNode document) {
+        String uri = document.path("uri").asText();
+        Map<String, JsonNode> nodes = new LinkedHashMap<>();
+        collectAstNodes(document.path("feature"), nodes);
+        astNodes.put(stream + "/" + uri, nodes);
+        streamDocuments.put(stream + "/" + uri, document);
+
+        JsonNode first = documents.putIfAbsent(uri, document);
+        if (first == null) {
+            documentStreams.put(uri, stream);
+            return;
+        }
+        if (!withoutIds(first).equals(withoutIds(document))) {
+            separateDocuments.add(stream + "/" + uri);
+            return;
+        }
+        // Identical documents list their nodes in the same order
+        List<String> firstIds = new ArrayList<>(astNodes.get(documentStreams.get(uri) + "/" + uri).keySet());
+        int position = 0;
+        for (String id : nodes.keySet()) {
+            documentIds.put(stream + "/" + id, firstIds.get(position++));
+        }
+    }
+
+    private static JsonNode withoutIds(JsonNode node) {
+        if (node.isObject()) {
+            ObjectNode copy = mapper.createObjectNode();
+            node.fields().forEachRemaining(field -> {
+                if (!field.getKey().equals("id")) {
+                    copy.set(field.getKey(), withoutIds(field.getValue()));
+                }
+            });
+            return copy;
+        }
+        if (node.isArray()) {
+            ArrayNode copy = mapper.createArrayNode();
+            node.forEach(child -> copy.add(withoutIds(child)));
+            return copy;
+        }
+        return node;
+    }
+
+    private static void collectAstNodes(JsonNode node, Map<String, JsonNode> nodes) {
+        if (node.isObject()) {
+            if (node.has("id") && node.has("location")) {
+                nodes.put(node.path("id").asText(), node);
+            }
+            node.forEach(child -> collectAstNodes(child, nodes));
+        } else if (node.isArray()) {
+            node.forEach(child -> collectAstNodes(child, nodes));
+        }
+    }
+
+    /**
+     * Returns the gherkin documents of all streams, one per feature file: the first stream's
+     *
+     * @return documents by URI
+     */
+    Map<String, JsonNode> documents() {
+        return documents;
+    }
+
+    /**
+     * Returns a stream's copy of a gherkin document
+     *
+     * @param stream Stream index
+     * @param uri    Feature URI
+     * @return document, or a missing node
+     */
+    JsonNode document(int stream, String uri) {
+        JsonNode document = streamDocuments.get(stream + "/" + uri);
+        return (document == null) ? mapper.missingNode() : document;
+    }
+
+    /**
+     * Returns whether a stream's copy of a document goes into a merged report: the first copy of each feature, and any
+     * copy that differs from it
+     *
+     * @param stream Stream index
+     * @param uri    Feature URI
+     * @return true if the document is reported
+     */
+    boolean isReported(int stream, String uri) {
+        return Integer.valueOf(stream).equals(documentStreams.get(uri)) || separateDocuments.contains(stream + "/" + uri);
+    }
+
+    /**
+     * Points the AST node IDs of a pickle at the reported copy of its document
+     *
+     * @param stream Stream index of the pickle
+     * @param pickle Pickle message
+     * @return the pickle itself if its IDs are already those of the reported document, otherwise a rewritten copy
+     */
+    JsonNode withDocumentIds(int stream, JsonNode pickle) {
+        if (isReported(stream, pickle.path("uri").asText())) {
+            return pickle;
+        }
+        ObjectNode copy = pickle.deepCopy();
+        rewriteIds(stream, (ArrayNode) copy.path("astNodeIds"));
+        copy.path("steps").forEach(step -> rewriteIds(stream, (ArrayNode) step.path("astNodeIds")));
+        copy.path("tags").forEach(tag -> ((ObjectNode) tag).put("astNodeId", documentId(stream, tag.path("astNodeId").asText())));
+        return copy;
+    }
+
+    private void rewriteIds(int stream, ArrayNode ids) {
+        for (int i = 0; i < ids.size(); i++) {
+            ids.set(i, documentId(stream, ids.get(i).asText()));
+        }
+    }
+
+    private String documentId(int stream, String id) {
+        return documentIds.getOrDefault(stream + "/" + id, id);
+    }
+
+    /**
+     * Looks up a scenario, step, background or example row of a feature file
+     *
+     * @param stream Stream index, since every stream has its own node IDs
+     * @param uri    Feature URI
+     * @param id     AST node ID within that stream
+     * @return node, or a missing node
+     */
+    JsonNode astNode(int stream, String uri, String id) {
+        JsonNode node = astNodes.getOrDefault(stream + "/" + uri, Map.of()).get(id);
+        return (node == null) ? mapper.missingNode() : node;
+    }
+
+    /**
+     * Returns whether a pickle was run in its stream; pickles of other shards are not
+     *
+     * @param stream   Stream index
+     * @param pickleId Pickle ID within that stream
+     * @return true if a test case refers to the pickle
+     */
+    boolean isExecuted(int stream, String pickleId) {
+        return referencedPickles.contains(stream + "/" + pickleId);
+    }
+
+    Instant runStarted() {
+        return runStarted;
+    }
+
+    Instant runFinished() {
+        return runFinished;
+    }
+
+    boolean success() {
+        return success;
+    }
+
+    /**
+     * Returns the final attempt of every scenario, ordered by feature URI and line
+     *
+     * @return scenario runs
+     */
+    List<ScenarioRun> scenarioRuns() {
+        List<ScenarioRun> runs = new ArrayList<>();
+        started.forEach((startedId, testCaseStarted) -> {
+            if (retried.contains(startedId)) {
+                return;
+            }
+            int stream = Integer.parseInt(startedId.substring(0, startedId.indexOf('/')));
+            JsonNode testCase = testCases.get(testCaseStarted.path("testCaseId").asText());
+            JsonNode pickle = (testCase == null) ? null : pickles.get(stream + "/" + testCase.path("pickleId").asText());
+            if (pickle == null) {
+                return;
+            }
+            runs.add(scenarioRun(stream, startedId, testCaseStarted, testCase, pickle));
+        });
+        runs.sort(Comparator.comparing(ScenarioRun::uri).thenComparingInt(ScenarioRun::line));
+        return runs;
+    }
+
+    private ScenarioRun scenarioRun(int stream, String startedId, JsonNode testCaseStarted, JsonNode testCase, JsonNode streamPickle) {
+        String uri = streamPickle.path("uri").asText();
+        JsonNode pickle = withDocumentIds(stream, streamPickle);
+        int documentStream = isReported(stream, uri) ? stream : documentStreams.get(uri);
+        Map<String, JsonNode> pickleSteps = new HashMap<>();
+        pickle.path("steps").forEach(step -> pickleSteps.put(step.path("id").asText(), step));
+        Map<String, JsonNode> stepResults = results.getOrDefault(startedId, Map.of());
+
+        List<StepRun> steps = new ArrayList<>();
+        for (JsonNode testStep : testCase.path("testSteps")) {
+            String testStepId = testStep.path("id").asText();
+            JsonNode result = stepResults.get(stream + "/" + testStepId);
+            boolean hook = testStep.has("hookId");
+            String definition = hook ? testStep.path("hookId").asText() : testStep.path("stepDefinitionIds").path(0).asText(null);
+            steps.add(new StepRun(hook ? null : pickleSteps.get(testStep.path("pickleStepId").asText()), hook,
+                    (definition == null) ? null : locations.get(stream + "/" + definition),
+                    (result == null) ? "skipped" : result.path("status").asText("UNKNOWN").toLowerCase(),
+                    (result == null) ? 0 : nanos(result.path("duration")),
+                    (result == null) ? null : result.path("message").asText(null),
+                    attachments.getOrDefault(startedId + "/" + testStepId, List.of())));
+        }
+
+        // The last AST node is the example row for outlines and the scenario itself otherwise
+        JsonNode astNodeIds = pickle.path("astNodeIds");
+        JsonNode node = astNode(documentStream, uri, astNodeIds.path(astNodeIds.size() - 1).asText());
+        return new ScenarioRun(documentStream, uri, node.path("location").path("line").asInt(), pickle,
+                timestamp(testCaseStarted.path("timestamp")), steps);
+    }
+
+    /**
+     * Reads a line of a stream file again
+     *
+     * @param pointer Position of the line
+     * @return the line's message
+     */
+    JsonNode readLine(Pointer pointer) throws IOException {
+        SeekableByteChannel channel = channels.get(pointer.file());
+        if (channel == null) {
+            channel = Files.newByteChannel(pointer.file());
+            channels.put(pointer.file(), channel);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(pointer.length());
+        channel.position(pointer.offset());
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // keep reading until the line is complete
+        }
+        return mapper.readTree(buffer.array());
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (SeekableByteChannel channel : channels.values()) {
+            channel.close();
+        }
+        channels.clear();
+    }
+
+    static Instant timestamp(JsonNode timestamp) {
+        return Instant.ofEpochSecond(timestamp.path("seconds").asLong(), timestamp.path("nanos").asLong());
+    }
+
+    private static long nanos(JsonNode duration) {
+        return duration.path("seconds").asLong() * 1_000_000_000L + duration.path("nanos").asLong();
+    }
+
+    private static String id(int stream, JsonNode id) {
+        return stream + "/" + id.asText();
+    }
+
+    private static JsonNode qualify(int stream, JsonNode testCaseStarted) {
+        ObjectNode copy = testCaseStarted.deepCopy();
+        copy.put("testCaseId", id(stream, testCaseStarted.path("testCaseId")));
+        return copy;
+    }
+
+    private static String location(JsonNode sourceReference) {
+        JsonNode method = sourceReference.path("javaMethod");
+        if (method.isMissingNode()) {
+            return null;
+        }
+        List<String> parameterTypes = new ArrayList<>();
+        method.path("methodParameterTypes").forEach(type -> parameterTypes.add(type.asText()));
+        return method.path("className").asText() + "." + method.path("methodName").asText() + "(" + String.join(",", parameterTypes) + ")";
+    }
+
+    /**
+     * Reads a file line by line as bytes, keeping track of where each line starts
+     */
+    private static final class LineReader implements AutoCloseable {
+        private final InputStream in;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(1024);
+        private long position;
+        private long lineOffset;
+
+        LineReader(Path file) throws IOException {
+            this.in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024);
+        }
+
+        byte[] next() throws IOException {
+            line.reset();
+            lineOffset = position;
+            int b;
+            while ((b = in.read()) >= 0) {
+                position++;
+                if (b == '\n') {
+                    return line.toByteArray();
+                }
+                line.write(b);
+            }
+            return (line.size() > 0) ? line.toByteArray() : null;
+        }
+
+        long offset() {
+            return lineOffset;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.bookstore.report;
+
+import com.example.bookstore.schedule.ScenarioScheduler;
+import com.example.bookstore.util.ConfigUtil;
+import io.cucumber.core.plugin.MessageFormatter;
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EventPublisher;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streams the run's Cucumber messages to an NDJSON file while the scenarios run, so nothing is held back in memory for
+ * an end-of-run report. Sharded runs write {@code cucumber-shard-<index>.ndjson} instead of {@code cucumber.ndjson}, so
+ * shards sharing a directory don't overwrite each other. {@link ReportMerger} turns one or more of these files into
+ * the HTML and JSON reports.
+ */
+public class MessageStreamPlugin implements ConcurrentEventListener {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final MessageFormatter formatter;
+
+    public MessageStreamPlugin() {
+        Path file = file();
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE);
+            formatter = new MessageFormatter(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open message stream " + file, e);
+        }
+    }
+
+    /**
+     * Returns the file this run streams its messages to
+     *
+     * @return NDJSON file in bookstore.report.dir
+     */
+    public static Path file() {
+        return reportFile("ndjson");
+    }
+
+    /**
+     * Returns a report file of this run: {@code cucumber.<extension>}, or {@code cucumber-shard-<index>.<extension>}
+     * when sharded
+     *
+     * @param extension File extension
+     * @return file in bookstore.report.dir
+     */
+    static Path reportFile(String extension) {
+        Path dir = Path.of(ConfigUtil.getString("bookstore.report.dir", "target/cucumber-reports"));
+        return dir.resolve((ScenarioScheduler.isSharded() ? "cucumber-shard-" + ScenarioScheduler.shardIndex() : "cucumber") + "." + extension);
+    }
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        formatter.setEventPublisher(publisher);
+    }
+}
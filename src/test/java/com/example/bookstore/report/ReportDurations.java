@@ -0,0 +1,37 @@
+package com.example.bookstore.report;
+
+import com.example.bookstore.report.MessageIndex.ScenarioRun;
+import com.example.bookstore.report.MessageIndex.StepRun;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Scenario durations from a Cucumber message stream, for duration-based scheduling.
+ */
+public final class ReportDurations {
+
+    private ReportDurations() {
+    }
+
+    /**
+     * Reads the duration of every scenario in a message stream: the sum of its steps and hooks, as in the Cucumber
+     * JSON report
+     *
+     * @param stream NDJSON message stream
+     * @return milliseconds by feature URI and line
+     */
+    public static Map<String, Double> fromMessages(Path stream) throws IOException {
+        Map<String, Double> durations = new LinkedHashMap<>();
+        try (MessageIndex index = new MessageIndex()) {
+            index.add(stream);
+            for (ScenarioRun run : index.scenarioRuns()) {
+                long nanos = run.steps().stream().mapToLong(StepRun::durationNanos).sum();
+                durations.put(run.uri() + ":" + run.line(), nanos / 1e6);
+            }
+        }
+        return durations;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.bookstore.report;
+
+import com.example.bookstore.util.ConfigUtil;
+import com.example.bookstore.util.LoggerUtil;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.cucumber.htmlformatter.MessagesToHtmlWriter;
+import io.cucumber.messages.types.Envelope;
+import io.cucumber.messages.types.TestRunStarted;
+import io.cucumber.messages.types.Timestamp;
+import org.slf4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Merges the NDJSON message streams of several forks, shards or CI nodes into one HTML and one Cucumber JSON report.
+ * <p>
+ * The inputs (bookstore.report.inputs: files or directories, comma-separated) are read twice, line by line. The first
+ * pass builds a {@link MessageIndex}; the second copies the messages into Cucumber's HTML template as they are read,
+ * without deserializing most of them. Every stream parses the feature files itself and gives their AST nodes IDs of
+ * its own, so each feature's document is written once, from the first stream that has it, and the pickles of the
+ * other streams are rewritten to that document's IDs. Pickles are written only if their stream ran them, and the run
+ * start and end are combined into a single pair. The JSON report is then written from the index. Neither pass holds attachments in memory, so merging costs about the same no
+ * matter how many logs the scenarios attached.
+ * <p>
+ * Run it with {@code mvn test-compile exec:java -Preport}.
+ */
+public class ReportMerger {
+
+    private static final Logger logger = LoggerUtil.getLogger(ReportMerger.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final JsonFactory factory = mapper.getFactory();
+
+    public static void main(String[] args) throws IOException {
+        List<Path> inputs = Arrays.stream(ConfigUtil.getString("bookstore.report.inputs", "target/cucumber-reports").split(","))
+                                  .map(String::trim).filter(path -> !path.isEmpty()).map(Path::of).toList();
+        Path html = Path.of(ConfigUtil.getString("bookstore.report.html", "target/cucumber-reports/cucumber.html"));
+        Path json = Path.of(ConfigUtil.getString("bookstore.report.json", "target/cucumber-reports/cucumber.json"));
+
+        List<Path> streams = streams(inputs);
+        if (streams.isEmpty()) {
+            // Under exec:java this JVM is Maven's; fail the goal instead of exiting, so Maven still reports
+            throw new IllegalStateException("No .ndjson message streams found in " + inputs);
+        }
+        merge(streams, html, json);
+    }
+
+    /**
+     * Writes the merged reports
+     *
+     * @param streams NDJSON message streams
+     * @param html    HTML report to write
+     * @param json    Cucumber JSON report to write
+     */
+    public static void merge(List<Path> streams, Path html, Path json) throws IOException {
+        long startNanos = System.nanoTime();
+        try (MessageIndex index = new MessageIndex()) {
+            for (Path stream : streams) {
+                index.add(stream);
+            }
+            writeHtml(streams, index, html);
+            try (OutputStream out = output(json)) {
+                new CucumberJsonWriter(index).write(out);
+            }
+            logger.info("Merged {} message streams ({} scenarios) into {} and {} in {} ms", streams.size(), index.scenarioRuns().size(),
+                    html, json, (System.nanoTime() - startNanos) / 1_000_000);
+        }
+    }
+
+    /**
+     * Finds the message streams among files and directories
+     *
+     * @param inputs Files or directories to search for *.ndjson
+     * @return streams in sorted order
+     */
+    public static List<Path> streams(List<Path> inputs) throws IOException {
+        List<Path> streams = new ArrayList<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> files = Files.walk(input)) {
+                    files.filter(file -> file.toString().endsWith(".ndjson")).sorted().forEach(streams::add);
+                }
+            } else if (Files.exists(input)) {
+                streams.add(input);
+            }
+        }
+        return streams;
+    }
+
+    private static void writeHtml(List<Path> streams, MessageIndex index, Path html) throws IOException {
+        // The writer asks the serializer for each message; it gets the line as read, which already is the message's JSON
+        String[] current = new String[1];
+        Envelope placeholder = Envelope.of(new TestRunStarted(new Timestamp(0L, 0L)));
+        boolean metaWritten = false;
+        boolean runStartWritten = false;
+
+        try (MessagesToHtmlWriter writer = new MessagesToHtmlWriter(output(html), (out, envelope) -> out.write(current[0]))) {
+            for (int stream = 0; stream < streams.size(); stream++) {
+                try (BufferedReader lines = Files.newBufferedReader(streams.get(stream), StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = lines.readLine()) != null) {
+                        String type = type(line);
+                        boolean write = switch (type) {
+                            case "meta" -> !metaWritten;
+                            case "source", "gherkinDocument" -> index.isReported(stream, message(line).path("uri").asText());
+                            case "pickle" -> index.isExecuted(stream, message(line).path("id").asText());
+                            case "testRunStarted", "testRunFinished", "" -> false;
+                            default -> true;
+                        };
+                        if (type.equals("meta")) {
+                            metaWritten = true;
+                        }
+                        if (type.equals("pickle") && write) {
+                            JsonNode pickle = message(line);
+                            JsonNode reported = index.withDocumentIds(stream, pickle);
+                            if (reported != pickle) {
+                                line = mapper.writeValueAsString(Map.of("pickle", reported));
+                            }
+                        }
+                        if (type.equals("testRunStarted") && !runStartWritten) {
+                            line = "{\"testRunStarted\":{\"timestamp\":" + timestamp(index.runStarted()) + "}}";
+                            write = true;
+                            runStartWritten = true;
+                        }
+                        if (write) {
+                            // "</" would end the script element the messages are embedded in
+                            current[0] = line.replace("</", "<\\/");
+                            writer.write(placeholder);
+                        }
+                    }
+                }
+            }
+            if (index.runFinished() != null) {
+                current[0] = "{\"testRunFinished\":{\"success\":" + index.success() + ",\"timestamp\":" + timestamp(index.runFinished()) + "}}";
+                writer.write(placeholder);
+            }
+        }
+    }
+
+    private static String type(String line) throws IOException {
+        try (JsonParser parser = factory.createParser(line)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT && parser.nextToken() == JsonToken.FIELD_NAME) {
+                return parser.getCurrentName();
+            }
+            return "";
+        }
+    }
+
+    private static JsonNode message(String line) throws IOException {
+        return mapper.readTree(line).elements().next();
+    }
+
+    private static String timestamp(Instant instant) {
+        return "{\"seconds\":" + instant.getEpochSecond() + ",\"nanos\":" + instant.getNano() + "}";
+    }
+
+    private static OutputStream output(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        return new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024);
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.bookstore.schedule;
+
+import com.example.bookstore.report.ReportDurations;
+import com.example.bookstore.util.ConfigUtil;
+import com.example.bookstore.util.LoggerUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Smoothed per-scenario durations, built from the reports of earlier runs: Cucumber message streams (*.ndjson) or
+ * Cucumber JSON reports (*.json).
+ * <p>
+ * Scenarios are identified by feature URI and line ({@code classpath:features/login.feature:10}); for scenario outlines
+ * the line is the one of the example row. Every imported report moves a scenario's estimate towards its latest duration
+ * by the factor bookstore.schedule.smoothing (an exponential moving average), so one slow run doesn't reshuffle the
+ * schedule. Reports are recognized by a checksum of their content, so importing the same report twice, e.g. on every
+ * CI node, changes nothing. The checksums of the reports offered to the latest import are always kept; of the others,
+ * only the most recent bookstore.schedule.maxImported.
+ * <p>
+ * The history is kept in bookstore.schedule.historyFile, outside target/ so that it survives {@code mvn clean}.
+ */
+public class DurationHistory {
+
+    private static final Logger logger = LoggerUtil.getLogger(DurationHistory.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private static final double SMOOTHING = Double.parseDouble(ConfigUtil.getString("bookstore.schedule.smoothing", "0.3"));
+    private static final int MAX_IMPORTED = ConfigUtil.getInt("bookstore.schedule.maxImported", 100);
+
+    /**
+     * Smoothed duration of one scenario
+     */
+    public record Estimate(double millis, int runs) {
+    }
+
+    private final Path file;
+    private final Map<String, Estimate> estimates;
+    private final List<String> imported;
+
+    private DurationHistory(Path file, Map<String, Estimate> estimates, List<String> imported) {
+        this.file = file;
+        this.estimates = estimates;
+        this.imported = imported;
+    }
+
+    /**
+     * Returns the configured history file
+     *
+     * @return bookstore.schedule.historyFile
+     */
+    public static Path defaultFile() {
+        return Path.of(ConfigUtil.getString("bookstore.schedule.historyFile", ".cache/scenario-durations.json"));
+    }
+
+    /**
+     * Creates an empty history that isn't backed by a file, e.g. to build one from reports alone
+     *
+     * @return history
+     */
+    public static DurationHistory empty() {
+        return new DurationHistory(null, new TreeMap<>(), new ArrayList<>());
+    }
+
+    /**
+     * Loads a history file; a missing or unreadable file gives an empty history
+     *
+     * @param file History file
+     * @return history
+     */
+    public static DurationHistory load(Path file) {
+        Map<String, Estimate> estimates = new TreeMap<>();
+        List<String> imported = new ArrayList<>();
+        if (Files.exists(file)) {
+            try {
+                JsonNode root = mapper.readTree(file.toFile());
+                root.path("scenarios").fields().forEachRemaining(entry -> estimates.put(entry.getKey(),
+                        new Estimate(entry.getValue().path("millis").asDouble(), entry.getValue().path("runs").asInt())));
+                root.path("imported").forEach(checksum -> imported.add(checksum.asText()));
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable duration history {}", file, e);
+            }
+        }
+        return new DurationHistory(file, estimates, imported);
+    }
+
+    /**
+     * Folds the scenario durations of reports into the history. Directories are searched for message streams
+     * (*.ndjson) only, since a merged JSON report next to them would count the same run twice. Reports imported before
+     * are skipped.
+     *
+     * @param paths Report files or directories, imported in sorted order
+     * @return number of reports imported
+     */
+    public int importReports(Collection<Path> paths) {
+        List<Path> reports = new ArrayList<>();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.walk(path)) {
+                    files.filter(file -> file.toString().endsWith(".ndjson")).forEach(reports::add);
+                } catch (IOException e) {
+                    logger.warn("Cannot list reports in {}", path, e);
+                }
+            } else if (Files.exists(path)) {
+                reports.add(path);
+            }
+        }
+        reports.sort(null);
+
+        int count = 0;
+        Set<String> offered = new HashSet<>();
+        for (Path report : reports) {
+            String checksum;
+            try {
+                checksum = checksum(report);
+            } catch (IOException e) {
+                logger.warn("Skipping unreadable report {}", report, e);
+                continue;
+            }
+            offered.add(checksum);
+            if (!imported.contains(checksum) && importReport(report)) {
+                imported.add(checksum);
+                count++;
+            }
+        }
+        // Forget the oldest checksums, but never one of a report that is still offered, or it would count again
+        Iterator<String> oldest = imported.iterator();
+        int surplus = imported.size() - Math.max(MAX_IMPORTED, offered.size());
+        while (surplus > 0 && oldest.hasNext()) {
+            if (!offered.contains(oldest.next())) {
+                oldest.remove();
+                surplus--;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the estimate for a scenario
+     *
+     * @param key Feature URI and line
+     * @return smoothed duration in milliseconds, or null for a scenario without history
+     */
+    public Double millis(String key) {
+        Estimate estimate = estimates.get(key);
+        return (estimate == null) ? null : estimate.millis();
+    }
+
+    /**
+     * Returns the median of all estimates, the default for scenarios without history
+     *
+     * @param fallback Value returned when the history is empty
+     * @return median duration in milliseconds
+     */
+    public double medianMillis(double fallback) {
+        double[] sorted = estimates.values().stream().mapToDouble(Estimate::millis).sorted().toArray();
+        return (sorted.length == 0) ? fallback : sorted[sorted.length / 2];
+    }
+
+    /**
+     * Writes the history back to its file
+     */
+    public void save() {
+        if (file == null) {
+            throw new IllegalStateException("This duration history has no file");
+        }
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("scenarios", estimates);
+        root.put("imported", imported);
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            mapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), root);
+        } catch (IOException e) {
+            logger.warn("Failed to write duration history {}", file, e);
+        }
+    }
+
+    private boolean importReport(Path report) {
+        Map<String, Double> durations;
+        try {
+            durations = report.toString().endsWith(".ndjson") ? ReportDurations.fromMessages(report) : fromJson(report);
+        } catch (IOException e) {
+            logger.warn("Skipping unreadable report {}", report, e);
+            return false;
+        }
+
+        durations.forEach(this::record);
+        logger.debug("Imported scenario durations from {}", report);
+        return true;
+    }
+
+    private void record(String key, double millis) {
+        estimates.merge(key, new Estimate(millis, 1), (old, latest) ->
+                new Estimate(SMOOTHING * latest.millis() + (1 - SMOOTHING) * old.millis(), old.runs() + 1));
+    }
+
+    private static Map<String, Double> fromJson(Path report) throws IOException {
+        Map<String, Double> durations = new LinkedHashMap<>();
+        for (JsonNode feature : mapper.readTree(report.toFile())) {
+            String uri = feature.path("uri").asText();
+            for (JsonNode element : feature.path("elements")) {
+                if ("scenario".equals(element.path("type").asText())) {
+                    durations.put(uri + ":" + element.path("line").asInt(), durationMillis(element));
+                }
+            }
+        }
+        return durations;
+    }
+
+    private static double durationMillis(JsonNode scenario) {
+        long nanos = 0;
+        for (String part : List.of("before", "steps", "after")) {
+            for (JsonNode step : scenario.path(part)) {
+                nanos += step.path("result").path("duration").asLong();
+            }
+        }
+        return nanos / 1e6;
+    }
+
+    private static String checksum(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[64 * 1024];
+        long length = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, read);
+                length += read;
+            }
+        }
+        return Long.toHexString(crc.getValue()) + "-" + length;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.bookstore.schedule;
+
+import com.example.bookstore.cassette.CassetteFilter;
+import com.example.bookstore.report.MessageStreamPlugin;
+import com.example.bookstore.util.ConfigUtil;
+import com.example.bookstore.util.LoggerUtil;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestPlan;
+import org.slf4j.Logger;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Folds the message stream of a finished run into the {@link DurationHistory}, so the next run is scheduled with its
+ * durations.
+ * <p>
+ * Runs after the engine has finished and Cucumber has closed the stream. Sharded runs and cassette replays are not
+ * recorded: a shard only knows its own scenarios, and every node must schedule from the same history, which for CI
+ * comes from the collected reports (bookstore.schedule.reports); replayed durations don't reflect the real service.
+ * <p>
+ * Registered through META-INF/services.
+ */
+public class DurationRecorder implements TestExecutionListener {
+
+    private static final Logger logger = LoggerUtil.getLogger(DurationRecorder.class);
+
+    private static final boolean ENABLED = ConfigUtil.getBoolean("bookstore.schedule.enabled", true);
+
+    @Override
+    public void testPlanExecutionFinished(TestPlan testPlan) {
+        if (!ENABLED || ScenarioScheduler.isSharded() || CassetteFilter.isReplaying()) {
+            return;
+        }
+        Path file = DurationHistory.defaultFile();
+        DurationHistory history = DurationHistory.load(file);
+        Path report = Path.of(ConfigUtil.getString("bookstore.schedule.report", MessageStreamPlugin.file().toString()));
+        if (history.importReports(List.of(report)) > 0) {
+            history.save();
+            logger.info("Scenario durations of this run added to {}", file);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.bookstore.schedule;
+
+import com.example.bookstore.util.ConfigUtil;
+import com.example.bookstore.util.LoggerUtil;
+import org.junit.platform.engine.FilterResult;
+import org.junit.platform.engine.TestDescriptor;
+import org.junit.platform.engine.TestSource;
+import org.junit.platform.engine.UniqueId;
+import org.junit.platform.engine.support.descriptor.ClasspathResourceSource;
+import org.junit.platform.engine.support.descriptor.FilePosition;
+import org.junit.platform.engine.support.descriptor.FileSource;
+import org.junit.platform.launcher.PostDiscoveryFilter;
+import org.slf4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * Splits the discovered scenarios into bookstore.shard.count shards of about equal expected duration and keeps only
+ * shard bookstore.shard.index, so CI nodes (or separate local processes) can each run their part of the suite.
+ * <p>
+ * Expected durations come from {@link DurationHistory}; a scenario without history is assumed to take the median.
+ * Scenarios are assigned longest first, each to the shard with the least expected time so far. The assignment only
+ * depends on the history and the discovered scenarios, so every node computes the same split and no scenario runs
+ * twice or not at all. Reports listed in bookstore.schedule.reports (files or directories, comma-separated) are
+ * imported into the history first, e.g. the message streams of the previous pipeline's nodes. A sharded run builds its
+ * history from those reports alone and ignores the local history file, which may differ from node to node. The logged
+ * plan ends with a hash of the whole assignment; all nodes of one run must log the same hash.
+ * <p>
+ * Within a run the scenarios are also reordered longest first, features and outlines by the sum of their scenarios.
+ * The parallel executor hands out work roughly in that order, so the slow setup-heavy scenarios start early instead of
+ * ending up as the tail that decides the wall-clock time.
+ * <p>
+ * Registered through META-INF/services and applied by the JUnit Platform launcher after discovery.
+ */
+public class ScenarioScheduler implements PostDiscoveryFilter {
+
+    private static final Logger logger = LoggerUtil.getLogger(ScenarioScheduler.class);
+
+    private static final boolean ENABLED = ConfigUtil.getBoolean("bookstore.schedule.enabled", true);
+    private static final int SHARD_INDEX = ConfigUtil.getInt("bookstore.shard.index", 0);
+    private static final int SHARD_COUNT = ConfigUtil.getInt("bookstore.shard.count", 1);
+    private static final double DEFAULT_MILLIS = ConfigUtil.getInt("bookstore.schedule.defaultMs", 1000);
+
+    // Surefire discovers the suite twice (to plan, then to execute); each fresh tree is scheduled once, and identity
+    // matters because descriptors of both trees are equal by unique ID
+    private static final Set<TestDescriptor> scheduledRoots = Collections.newSetFromMap(new IdentityHashMap<>());
+    private static final Set<UniqueId> excluded = new HashSet<>();
+    private static String lastPlan;
+
+    static {
+        if (SHARD_COUNT < 1 || SHARD_INDEX < 0 || SHARD_INDEX >= SHARD_COUNT) {
+            throw new IllegalArgumentException("bookstore.shard.index must be in [0, bookstore.shard.count) but was "
+                    + SHARD_INDEX + " of " + SHARD_COUNT);
+        }
+    }
+
+    /**
+     * Returns whether this run executes one shard of several
+     *
+     * @return true if bookstore.shard.count is greater than 1
+     */
+    public static boolean isSharded() {
+        return SHARD_COUNT > 1;
+    }
+
+    /**
+     * Returns the shard this run executes
+     *
+     * @return bookstore.shard.index
+     */
+    public static int shardIndex() {
+        return SHARD_INDEX;
+    }
+
+    @Override
+    public synchronized FilterResult apply(TestDescriptor descriptor) {
+        if (!ENABLED) {
+            return FilterResult.included("scheduling disabled");
+        }
+        if (isCucumberEngine(descriptor) && !descriptor.getChildren().isEmpty() && scheduledRoots.add(descriptor)) {
+            schedule(descriptor);
+        }
+        return excluded.contains(descriptor.getUniqueId()) ? FilterResult.excluded("assigned to another shard")
+                : FilterResult.included("assigned to shard " + SHARD_INDEX);
+    }
+
+    private static void schedule(TestDescriptor engine) {
+        List<Path> reports = Arrays.stream(ConfigUtil.getString("bookstore.schedule.reports", "").split(","))
+                                   .map(String::trim).filter(path -> !path.isEmpty()).map(Path::of).toList();
+        DurationHistory history;
+        if (isSharded()) {
+            // Only the shared reports are the same on every node
+            history = DurationHistory.empty();
+            history.importReports(reports);
+        } else {
+            history = DurationHistory.load(DurationHistory.defaultFile());
+            if (!reports.isEmpty() && history.importReports(reports) > 0) {
+                history.save();
+            }
+        }
+
+        double defaultMillis = history.medianMillis(DEFAULT_MILLIS);
+        Map<TestDescriptor, Double> millis = new HashMap<>();
+        int unknown = 0;
+        for (TestDescriptor test : tests(engine)) {
+            Double estimate = history.millis(key(test));
+            if (estimate == null) {
+                unknown++;
+            }
+            millis.put(test, (estimate == null) ? defaultMillis : estimate);
+        }
+
+        // Longest first, ties by position so that every node makes the same choices
+        List<TestDescriptor> byDuration = new ArrayList<>(millis.keySet());
+        byDuration.sort(Comparator.comparing((TestDescriptor test) -> millis.get(test)).reversed()
+                                  .thenComparing(ScenarioScheduler::key));
+        double[] shardMillis = new double[SHARD_COUNT];
+        Map<TestDescriptor, Integer> shards = new HashMap<>();
+        for (TestDescriptor test : byDuration) {
+            int shard = 0;
+            for (int candidate = 1; candidate < SHARD_COUNT; candidate++) {
+                if (shardMillis[candidate] < shardMillis[shard]) {
+                    shard = candidate;
+                }
+            }
+            shardMillis[shard] += millis.get(test);
+            shards.put(test, shard);
+        }
+        shards.forEach((test, shard) -> {
+            if (shard != SHARD_INDEX) {
+                excluded.add(test.getUniqueId());
+            }
+        });
+
+        reorder(engine, millis);
+        long selected = shards.values().stream().filter(shard -> shard == SHARD_INDEX).count();
+        String plan = String.format("Scheduled %d of %d scenarios on shard %d/%d (%d without history, assumed %d ms); expected shard times: %s; plan %s",
+                selected, shards.size(), SHARD_INDEX + 1, SHARD_COUNT, unknown, Math.round(defaultMillis),
+                Arrays.stream(shardMillis).mapToObj(time -> String.format("%.1f s", time / 1000)).collect(Collectors.joining(", ")),
+                planHash(shards));
+        if (!plan.equals(lastPlan)) {
+            logger.info(plan);
+            lastPlan = plan;
+        }
+    }
+
+    /**
+     * Returns a checksum of the assignment of every scenario to its shard, the same on every node that computed the same
+     * split
+     */
+    private static String planHash(Map<TestDescriptor, Integer> shards) {
+        CRC32 crc = new CRC32();
+        shards.entrySet().stream().map(entry -> key(entry.getKey()) + "=" + entry.getValue()).sorted()
+              .forEach(line -> crc.update((line + "\n").getBytes(StandardCharsets.UTF_8)));
+        return String.format("%08x", crc.getValue());
+    }
+
+    /**
+     * Sorts the children of every container by their expected duration, longest first
+     *
+     * @return expected duration of the container's scenarios that stay in this shard
+     */
+    private static double reorder(TestDescriptor container, Map<TestDescriptor, Double> millis) {
+        if (container.isTest()) {
+            return excluded.contains(container.getUniqueId()) ? 0 : millis.getOrDefault(container, 0.0);
+        }
+        Map<TestDescriptor, Double> childMillis = new HashMap<>();
+        for (TestDescriptor child : container.getChildren()) {
+            childMillis.put(child, reorder(child, millis));
+        }
+        List<TestDescriptor> children = new ArrayList<>(container.getChildren());
+        children.sort(Comparator.comparing((TestDescriptor child) -> childMillis.get(child)).reversed());
+        children.forEach(container::removeChild);
+        children.forEach(container::addChild);
+        return childMillis.values().stream().mapToDouble(Double::doubleValue).sum();
+    }
+
+    private static List<TestDescriptor> tests(TestDescriptor root) {
+        List<TestDescriptor> tests = new ArrayList<>();
+        root.accept(descriptor -> {
+            if (descriptor.isTest()) {
+                tests.add(descriptor);
+            }
+        });
+        return tests;
+    }
+
+    /**
+     * Returns the key of a scenario in the form used by Cucumber JSON reports: feature URI and line
+     */
+    static String key(TestDescriptor test) {
+        TestSource source = test.getSource().orElse(null);
+        if (source instanceof ClasspathResourceSource resource) {
+            return "classpath:" + resource.getClasspathResourceName() + line(resource.getPosition().orElse(null));
+        }
+        if (source instanceof FileSource file) {
+            return file.getFile().toURI() + line(file.getPosition().orElse(null));
+        }
+        return test.getUniqueId().toString();
+    }
+
+    private static String line(FilePosition position) {
+        return (position == null) ? "" : ":" + position.getLine();
+    }
+
+    private static boolean isCucumberEngine(TestDescriptor descriptor) {
+        return descriptor.getUniqueId().getLastSegment().getType().equals("engine")
+                && descriptor.getUniqueId().getLastSegment().getValue().equals("cucumber");
+    }
+}
@@ -1,22 +1,45 @@
 package com.example.bookstore.stepdefs;
 
+import com.example.bookstore.metrics.HttpMetrics;
+import com.example.bookstore.model.Book;
+import com.example.bookstore.model.BookCollection;
+import com.example.bookstore.util.ApiClient;
 import com.example.bookstore.util.ApiHelper;
+import com.example.bookstore.util.CatalogCache;
 import com.example.bookstore.util.LoggerUtil;
-import com.example.bookstore.util.UserUtil;
+import com.example.bookstore.util.PayloadTemplate;
+import com.example.bookstore.util.ResponseLog;
+import com.example.bookstore.util.TestUser;
+import com.example.bookstore.util.UserPool;
 import io.cucumber.java.en.Given;
 import io.cucumber.java.en.Then;
 import io.cucumber.java.en.When;
+import io.restassured.http.ContentType;
 import org.slf4j.Logger;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class BookStoreSteps {
 
     private static final Logger logger = LoggerUtil.getLogger(BookStoreSteps.class);
+
+    private static final PayloadTemplate ISBN_ONLY = PayloadTemplate.compile("""
+            {
+              "isbn": "${isbn}"
+            }
+            """);
+
+    private static final PayloadTemplate ADD_BOOK = PayloadTemplate.compile("""
+            {
+              "userId": "${userId}",
+              "collectionOfIsbns": [{"isbn": "${isbn}"}]
+            }
+            """);
+
     private final ScenarioState state;
-    private static final String BASE_URL = "https://bookstore.toolsqa.com";
 
     public BookStoreSteps(ScenarioState scenarioState) {
         this.state = scenarioState;
@@ -24,30 +47,26 @@ public class BookStoreSteps {
 
     @Given("I have a valid user and token")
     public void createValidUserAndToken() {
-        state.username = UserUtil.generateUniqueUsername();
-        state.password = UserUtil.generateDefaultPassword();
-
-        state.response = ApiHelper.createUser(state.username, state.password);
-        assertEquals(201, state.response.getStatusCode(), "Failed to create user.");
-        state.userId = state.response.jsonPath().getString("userID");
-
-        state.response = ApiHelper.generateToken(state.username, state.password);
-        assertEquals(200, state.response.getStatusCode(), "Failed to generate token.");
-        state.token = state.response.jsonPath().getString("token");
-
-        logger.info("Created user with ID: {} and token: {}", state.userId, state.token);
+        TestUser user = UserPool.lease();
+        state.setLeasedUser(user);
+        state.setUsername(user.username());
+        state.setPassword(user.password());
+        state.setUserId(user.userId());
+        state.setToken(user.token());
+
+        logger.info("Leased user with ID: {} and token: {}", state.getUserId(), state.getToken());
     }
 
     @When("I send a GET request to fetch all books")
     public void getAllBooks() {
-        state.response = ApiHelper.getAllBooks();
-        logger.info("Fetched all books. Status: {}", state.response.statusCode());
-        logger.debug("Books response body: {}", state.response.getBody().asString());
+        state.setResponse(ApiHelper.getAllBooks());
+        logger.info("Fetched all books. Status: {}", state.getResponse().statusCode());
+        logger.debug("Books response body: {}", ResponseLog.body(state.getResponse()));
     }
 
     @Then("the response should contain a non-empty list of books")
     public void validateBooksList() {
-        var books = state.response.jsonPath().getList("books");
+        List<Book> books = state.getResponseAs(BookCollection.class).books();
         logger.debug("Books returned: {}", books);
         assertNotNull(books, "Books list is null");
         assertFalse(books.isEmpty(), "Books list is empty");
@@ -55,85 +74,109 @@ public class BookStoreSteps {
 
     @When("I send a GET request to fetch book with ISBN {string}")
     public void getBookByIsbn(String isbn) {
-        state.response = ApiHelper.getBookByIsbn(isbn);
-        logger.info("Fetched book with ISBN: {}. Status: {}", isbn, state.response.statusCode());
-        logger.debug("Book response body: {}", state.response.getBody().asString());
+        state.setResponse(ApiHelper.getBookByIsbn(isbn));
+        logger.info("Fetched book with ISBN: {}. Status: {}", isbn, state.getResponse().statusCode());
+        logger.debug("Book response body: {}", ResponseLog.body(state.getResponse()));
     }
 
     @Then("the response should contain the book title {string}")
     public void validateBookTitle(String expectedTitle) {
-        String actualTitle = state.response.jsonPath().getString("title");
+        String actualTitle = state.getResponseAs(Book.class).title();
         logger.info("Validating book title. Expected: '{}', Actual: '{}'", expectedTitle, actualTitle);
         assertEquals(expectedTitle, actualTitle, "Book title mismatch");
     }
 
+    @Given("the catalog is cached")
+    public void catalogIsCached() {
+        int catalogSize = CatalogCache.cachedIndex().size();
+        state.setCatalogCachedAt(HttpMetrics.scenarioSamples().size());
+        logger.info("Serving catalog lookups from the cache ({} books)", catalogSize);
+    }
+
+    @Given("the catalog contains a book with ISBN {string}")
+    public void catalogContainsIsbn(String isbn) {
+        assertTrue(catalog().containsKey(isbn), "ISBN not in catalog: " + isbn);
+        logger.info("Catalog contains ISBN {}", isbn);
+    }
+
+    @Then("the catalog title for ISBN {string} should be {string}")
+    public void validateCatalogTitle(String isbn, String expectedTitle) {
+        Book book = catalog().get(isbn);
+        String actualTitle = (book == null) ? null : book.title();
+        logger.info("Validating catalog title for {}. Expected: '{}', Actual: '{}'", isbn, expectedTitle, actualTitle);
+        assertEquals(expectedTitle, actualTitle, "Catalog title mismatch");
+    }
+
+    @Then("no book endpoint should have been called since the catalog was cached")
+    public void noBookEndpointCalledSinceCatalogCached() {
+        Integer cachedAt = state.getCatalogCachedAt();
+        assertNotNull(cachedAt, "The catalog was not cached in this scenario");
+        List<String> calls = HttpMetrics.scenarioSamples().stream().skip(cachedAt)
+                                        .map(HttpMetrics.Sample::endpoint)
+                                        .filter(endpoint -> endpoint.contains("/BookStore/"))
+                                        .toList();
+        logger.info("Book endpoint calls since the catalog was cached: {}", calls);
+        assertTrue(calls.isEmpty(), "Catalog lookups called the book endpoints: " + calls);
+    }
+
     @When("I send a POST request to add book with ISBN {string} to the user's account")
     public void addBookToUser(String isbn) {
-        state.response = ApiHelper.addBooksToUser(state.token, state.userId, List.of(isbn));
-        logger.info("Add book response status: {}", state.response.statusCode());
-        logger.debug("Add book response: {}", state.response.getBody().asString());
+        state.setResponse(ApiHelper.addBooksToUser(state.getToken(), state.getUserId(), List.of(isbn)));
+        logger.info("Add book response status: {}", state.getResponse().statusCode());
+        logger.debug("Add book response: {}", ResponseLog.body(state.getResponse()));
     }
 
     @When("I send a PUT request to replace book with ISBN {string} with {string}")
     public void replaceBookInUserCollection(String oldIsbn, String newIsbn) {
-        state.response = ApiHelper.updateBookForUser(BASE_URL, state.token, state.userId, oldIsbn, newIsbn, null, null, null);
-        logger.info("Replacing book {} with {} for user {}", oldIsbn, newIsbn, state.userId);
-        logger.debug("Replace book response: {}", state.response.getBody().asString());
+        state.setResponse(ApiHelper.updateBookForUser(ApiClient.baseUrl(), state.getToken(), state.getUserId(), oldIsbn, newIsbn, null, null, null));
+        logger.info("Replacing book {} with {} for user {}", oldIsbn, newIsbn, state.getUserId());
+        logger.debug("Replace book response: {}", ResponseLog.body(state.getResponse()));
     }
 
     @When("I send a DELETE request to remove book with ISBN {string}")
     public void deleteBookFromUserCollection(String isbn) {
-        state.response = ApiHelper.deleteBookForUser(state.token, state.userId, isbn);
-        logger.info("Deleting book {} from user {}", isbn, state.userId);
-        logger.debug("Delete book response: {}", state.response.getBody().asString());
+        state.setResponse(ApiHelper.deleteBookForUser(state.getToken(), state.getUserId(), isbn));
+        logger.info("Deleting book {} from user {}", isbn, state.getUserId());
+        logger.debug("Delete book response: {}", ResponseLog.body(state.getResponse()));
     }
 
     @When("I send a DELETE request to remove book with ISBN {string} without user ID")
     public void deleteBookWithoutUserId(String isbn) {
-        String payload = String.format("""
-                {
-                  "isbn": "%s"
-                }
-                """, isbn);
-
-        state.response = io.restassured.RestAssured.given().relaxedHTTPSValidation()
-                                                   .baseUri("https://bookstore.toolsqa.com")
-                                                   .contentType(io.restassured.http.ContentType.JSON)
-                                                   .header("Authorization", "Bearer " + state.token).body(payload)
-                                                   .delete("/BookStore/v1/Book");
+        byte[] payload = ISBN_ONLY.render(isbn);
+
+        state.setResponse(ApiClient.request().contentType(ContentType.JSON)
+                                   .header("Authorization", "Bearer " + state.getToken()).body(payload)
+                                   .delete("/BookStore/v1/Book"));
 
         logger.info("Attempted deleting book {} without user ID", isbn);
-        logger.debug("Delete response without user ID: {}", state.response.getBody().asString());
+        logger.debug("Delete response without user ID: {}", ResponseLog.body(state.getResponse()));
     }
 
     @When("I send a POST request with ISBN {string} with invalid userId")
     public void i_send_a_post_request_with_isbn_with_invalid_user_id(String isbn) {
         String invalidUserId = "invalid-user-123";
 
-        String payload = String.format("""
-                {
-                  "userId": "%s",
-                  "collectionOfIsbns": [{"isbn": "%s"}]
-                }
-                """, invalidUserId, isbn);
+        byte[] payload = ADD_BOOK.render(invalidUserId, isbn);
 
-        state.response = io.restassured.RestAssured.given().relaxedHTTPSValidation()
-                                                   .baseUri("https://bookstore.toolsqa.com")
-                                                   .contentType(io.restassured.http.ContentType.JSON)
-                                                   .header("Authorization", "Bearer " + state.token).body(payload)
-                                                   .post("/BookStore/v1/Books");
+        state.setResponse(ApiClient.request().contentType(ContentType.JSON)
+                                   .header("Authorization", "Bearer " + state.getToken()).body(payload)
+                                   .post("/BookStore/v1/Books"));
 
-        logger.info("Sent POST request with invalid user ID. Status: {}", state.response.getStatusCode());
-        logger.debug("Response body: {}", state.response.getBody().asString());
+        logger.info("Sent POST request with invalid user ID. Status: {}", state.getResponse().getStatusCode());
+        logger.debug("Response body: {}", ResponseLog.body(state.getResponse()));
     }
 
     @Given("I have a valid user and a book with ISBN {string} in their collection")
     public void i_have_a_valid_user_and_a_book_with_isbn_in_their_collection(String isbn) {
         createValidUserAndToken();
-        state.response = ApiHelper.addBooksToUser(state.token, state.userId, List.of(isbn));
-        int statusCode = state.response.getStatusCode();
+        state.setResponse(ApiHelper.addBooksToUser(state.getToken(), state.getUserId(), List.of(isbn)));
+        int statusCode = state.getResponse().getStatusCode();
         assertEquals(201, statusCode, "Failed to add book to user's collection");
         logger.info("Created user and added book with ISBN {}. Status: {}", isbn, statusCode);
-        logger.debug("Add book response body: {}", state.response.getBody().asString());
+        logger.debug("Add book response body: {}", ResponseLog.body(state.getResponse()));
+    }
+
+    private Map<String, Book> catalog() {
+        return (state.getCatalogCachedAt() != null) ? CatalogCache.cachedIndex() : CatalogCache.index();
     }
 }
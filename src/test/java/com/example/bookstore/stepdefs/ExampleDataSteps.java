@@ -0,0 +1,159 @@
+package com.example.bookstore.stepdefs;
+
+import com.example.bookstore.data.ExampleRow;
+import com.example.bookstore.data.ExampleSource;
+import com.example.bookstore.model.Book;
+import com.example.bookstore.util.ApiHelper;
+import com.example.bookstore.util.ConfigUtil;
+import com.example.bookstore.util.LoggerUtil;
+import com.example.bookstore.util.ResponseDecoder;
+import com.example.bookstore.util.UserUtil;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.restassured.response.Response;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Data-driven steps over an external {@link ExampleSource}. The rows are streamed while the step runs instead of being
+ * written into an Examples table, so tens of thousands of rows cost neither Gherkin parsing nor one report entry each.
+ * To spread a source over parallel threads or shards, a Scenario Outline lists only partition numbers as its examples:
+ * <pre>
+ *   Given example rows from "data/catalog.csv" with
+ *     | partition | &lt;partition&gt;/4 |
+ * </pre>
+ * Options are where (filter), sample (fraction or percentage), seed, partition (index/count, 0-based) and limit.
+ * bookstore.data.seed is the default sample seed and bookstore.data.limit caps the rows of every source for quick runs.
+ */
+public class ExampleDataSteps {
+
+    private static final Logger logger = LoggerUtil.getLogger(ExampleDataSteps.class);
+
+    private static final long SEED = ConfigUtil.getInt("bookstore.data.seed", 1);
+    private static final long LIMIT = ConfigUtil.getInt("bookstore.data.limit", 0);
+    private static final int MAX_REPORTED_FAILURES = 20;
+
+    private final ScenarioState state;
+
+    public ExampleDataSteps(ScenarioState scenarioState) {
+        this.state = scenarioState;
+    }
+
+    @Given("example rows from {string}")
+    public void exampleRowsFrom(String location) {
+        exampleRowsFrom(location, Map.of());
+    }
+
+    @Given("example rows from {string} with")
+    public void exampleRowsFrom(String location, Map<String, String> options) {
+        ExampleSource source = ExampleSource.of(location);
+        if (options.containsKey("where")) {
+            source = source.where(options.get("where"));
+        }
+        if (options.containsKey("sample")) {
+            long seed = options.containsKey("seed") ? Long.parseLong(options.get("seed").trim()) : SEED;
+            source = source.sample(fraction(options.get("sample")), seed);
+        }
+        if (options.containsKey("partition")) {
+            String[] partition = options.get("partition").split("/");
+            if (partition.length != 2) {
+                throw new IllegalArgumentException("Partition must be index/count, e.g. 0/4, but was " + options.get("partition"));
+            }
+            source = source.partition(Integer.parseInt(partition[0].trim()), Integer.parseInt(partition[1].trim()));
+        }
+        long limit = options.containsKey("limit") ? Long.parseLong(options.get("limit").trim()) : 0;
+        if (LIMIT > 0 && (limit == 0 || LIMIT < limit)) {
+            limit = LIMIT;
+        }
+        if (limit > 0) {
+            source = source.limit(limit);
+        }
+        state.setExampleRows(source);
+        logger.info("Using example rows from {}", source);
+    }
+
+    @Then("{int} example rows should be selected")
+    public void exampleRowsShouldBeSelected(int expected) {
+        ExampleSource source = state.getExampleRows();
+        assertNotNull(source, "No example rows selected; start with 'Given example rows from ...'");
+        try (Stream<ExampleRow> rows = source.stream()) {
+            assertEquals(expected, rows.count(), "Rows selected from " + source);
+        }
+    }
+
+    @Then("every example book can be fetched by its ISBN with its title")
+    public void everyExampleBookCanBeFetched() {
+        checkEveryRow(row -> {
+            Response response = ApiHelper.getBookByIsbn(row.get("isbn"));
+            if (response.statusCode() != 200) {
+                return "status " + response.statusCode();
+            }
+            Book book = ResponseDecoder.decode(response, Book.class);
+            return book.title().equals(row.get("title")) ? null : "title '" + book.title() + "', expected '" + row.get("title") + "'";
+        });
+    }
+
+    @Then("every example password is accepted or rejected as expected")
+    public void everyExamplePasswordIsHandledAsExpected() {
+        checkEveryRow(row -> {
+            Response response = ApiHelper.createUser(UserUtil.generateUniqueUsername(), row.get("password"));
+            int expectedStatus = Integer.parseInt(row.get("status"));
+            if (response.statusCode() != expectedStatus) {
+                return "status " + response.statusCode() + ", expected " + expectedStatus;
+            }
+            String expectedMessage = row.get("message", null);
+            if (expectedMessage != null) {
+                String message = ResponseDecoder.field(response, "message");
+                if (message == null || !message.contains(expectedMessage)) {
+                    return "message '" + message + "', expected it to contain '" + expectedMessage + "'";
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Streams the selected rows through a check and fails with the first failures once all rows have been checked
+     *
+     * @param check Returns a description of the failure, or null when the row passes
+     */
+    private void checkEveryRow(Function<ExampleRow, String> check) {
+        ExampleSource source = state.getExampleRows();
+        assertNotNull(source, "No example rows selected; start with 'Given example rows from ...'");
+
+        long checked = 0;
+        long failed = 0;
+        List<String> failures = new ArrayList<>();
+        try (Stream<ExampleRow> rows = source.stream()) {
+            for (ExampleRow row : (Iterable<ExampleRow>) rows::iterator) {
+                checked++;
+                String failure = check.apply(row);
+                if (failure != null) {
+                    failed++;
+                    if (failures.size() < MAX_REPORTED_FAILURES) {
+                        failures.add("row " + row.number() + " " + row.values() + ": " + failure);
+                    }
+                }
+            }
+        }
+        logger.info("Checked {} example rows from {}, {} failed", checked, source, failed);
+
+        assertTrue(checked > 0, "No example rows selected from " + source);
+        if (failed > 0) {
+            String more = (failed > failures.size()) ? "\n  ... and " + (failed - failures.size()) + " more" : "";
+            fail(failed + " of " + checked + " example rows failed:\n  " + String.join("\n  ", failures) + more);
+        }
+    }
+
+    private static double fraction(String sample) {
+        String value = sample.trim();
+        return value.endsWith("%") ? Double.parseDouble(value.substring(0, value.length() - 1).trim()) / 100 : Double.parseDouble(value);
+    }
+}
@@ -1,24 +1,104 @@
 package com.example.bookstore.stepdefs;
 
+import com.example.bookstore.cassette.CassetteFilter;
+import com.example.bookstore.load.LoadGenerator;
+import com.example.bookstore.metrics.HttpMetrics;
+import com.example.bookstore.util.ConfigUtil;
 import com.example.bookstore.util.LoggerUtil;
+import com.example.bookstore.util.ResourceCleanup;
+import com.example.bookstore.util.ResourceTracker;
+import com.example.bookstore.util.ScenarioLogCapture;
+import com.example.bookstore.util.TokenCache;
+import com.example.bookstore.util.UserPool;
+import com.example.bookstore.watch.WatchRunner;
 import io.cucumber.java.After;
+import io.cucumber.java.AfterAll;
 import io.cucumber.java.Before;
+import io.cucumber.java.BeforeAll;
+import io.cucumber.java.Scenario;
 import org.slf4j.Logger;
 
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 public class Hooks {
-    private static boolean initialized = false;
+    private static final AtomicBoolean initialized = new AtomicBoolean(false);
     private static final Logger logger = LoggerUtil.getLogger(Hooks.class);
+    private static volatile long suiteStartNanos;
+    private final ScenarioState state;
+
+    public Hooks(ScenarioState scenarioState) {
+        this.state = scenarioState;
+    }
+
+    @BeforeAll
+    public static void beforeSuite() {
+        suiteStartNanos = System.nanoTime();
+        UserPool.start();
+    }
+
+    @AfterAll
+    public static void afterSuite() {
+        if (LoadGenerator.isRunning() || WatchRunner.isRunning()) {
+            // A load run is one Cucumber run covering all its iterations, and every watch re-run is a run of its own;
+            // both tear down once themselves when they finish
+            return;
+        }
+        logger.info("Suite finished in {} ms", (System.nanoTime() - suiteStartNanos) / 1_000_000);
+        logger.info("Token cache: {}", TokenCache.stats());
+        cleanUp();
+        CassetteFilter.close();
+        HttpMetrics.writeSummary(Path.of(ConfigUtil.getString("bookstore.metrics.file", "target/http-metrics.json")));
+    }
 
     @Before(order = 0)
     public void setupOnce() {
-        if (!initialized) {
+        if (initialized.compareAndSet(false, true)) {
             logger.info("Logger initialized!");
-            initialized = true;
+        }
+    }
+
+    /**
+     * Deletes the pooled accounts and waits up to bookstore.cleanup.drainTimeoutSeconds for all queued deletes
+     */
+    public static void cleanUp() {
+        long timeoutMillis = ConfigUtil.getInt("bookstore.cleanup.drainTimeoutSeconds", 30) * 1000L;
+        long startNanos = System.nanoTime();
+        UserPool.close(timeoutMillis);
+        boolean drained = ResourceCleanup.drain(timeoutMillis);
+        logger.info("Cleanup {} in {} ms: {}", drained ? "finished" : "timed out", (System.nanoTime() - startNanos) / 1_000_000,
+                ResourceCleanup.stats());
+    }
+
+    @Before
+    public void beforeScenario(Scenario scenario) {
+        String feature = Path.of(scenario.getUri().getSchemeSpecificPart()).getFileName().toString();
+        ScenarioLogCapture.start(scenario.getId(), scenario.getName(), feature + ":" + scenario.getLine());
+        HttpMetrics.startScenario();
+        ResourceTracker.begin();
+    }
+
+    @After
+    public void attachTimings(Scenario scenario) {
+        List<HttpMetrics.Sample> samples = HttpMetrics.finishScenario();
+        if (!samples.isEmpty()) {
+            scenario.attach(HttpMetrics.toJson(samples), "application/json", "http-timings");
         }
     }
 
     @After
     public void afterScenario() {
+        UserPool.release(state.getLeasedUser());
+        ResourceCleanup.submit(ResourceTracker.end());
+        CassetteFilter.scenarioFinished();
         logger.info("Scenario finished.");
     }
+
+    // Runs after all other @After hooks so their log lines are still captured
+    @After(order = 0)
+    public void attachScenarioLog(Scenario scenario) {
+        ScenarioLogCapture.finish(scenario.isFailed())
+                          .ifPresent(log -> scenario.attach(log, "text/plain", "scenario-log"));
+    }
 }
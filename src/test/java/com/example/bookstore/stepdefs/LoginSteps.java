@@ -1,12 +1,16 @@
 package com.example.bookstore.stepdefs;
 
+import com.example.bookstore.model.Token;
+import com.example.bookstore.model.User;
+import com.example.bookstore.util.ApiClient;
 import com.example.bookstore.util.ApiHelper;
 import com.example.bookstore.util.LoggerUtil;
+import com.example.bookstore.util.PayloadTemplate;
+import com.example.bookstore.util.ResponseLog;
 import com.example.bookstore.util.UserUtil;
 import io.cucumber.java.en.Given;
 import io.cucumber.java.en.Then;
 import io.cucumber.java.en.When;
-import io.restassured.RestAssured;
 import io.restassured.http.ContentType;
 import org.slf4j.Logger;
 
@@ -15,6 +19,19 @@ import static org.junit.jupiter.api.Assertions.*;
 public class LoginSteps {
 
     private static final Logger logger = LoggerUtil.getLogger(LoginSteps.class);
+
+    private static final PayloadTemplate PASSWORD_ONLY = PayloadTemplate.compile("""
+            {
+              "password": "${password}"
+            }
+            """);
+
+    // Cut off after the username, so the body is not valid JSON
+    private static final PayloadTemplate TRUNCATED_CREDENTIALS = PayloadTemplate.compileMalformed("""
+            {
+              "userName": "${username}",
+            """);
+
     private final ScenarioState state;
 
     public LoginSteps(ScenarioState scenarioState) {
@@ -23,132 +40,146 @@ public class LoginSteps {
 
     @Given("I generate a unique test username and password")
     public void generateUniqueUser() {
-        state.username = UserUtil.generateUniqueUsername();
-        state.password = UserUtil.generateDefaultPassword();
-        logger.info("Generated username: {}, password: {}", state.username, state.password);
+        state.setUsername(UserUtil.generateUniqueUsername());
+        state.setPassword(UserUtil.generateDefaultPassword());
+        logger.info("Generated username: {}, password: {}", state.getUsername(), state.getPassword());
+    }
+
+    @Given("I generate a unique test username and password containing a quote and a backslash")
+    public void generateUserWithJsonSpecialCharacters() {
+        // Both characters must be escaped in the JSON body, or the server sees a malformed request
+        state.setUsername(UserUtil.generateUniqueUsername() + "_\"q\\b");
+        state.setPassword("Secure\"Pass\\123");
+        logger.info("Generated username: {}, password: {}", state.getUsername(), state.getPassword());
     }
 
     @When("I send a POST request to create the user")
     public void createUser() {
-        state.response = ApiHelper.createUser(state.username, state.password);
-        logger.debug("Create user response: {}", state.response.getBody().asString());
+        state.setResponse(ApiHelper.createUser(state.getUsername(), state.getPassword()));
+        logger.debug("Create user response: {}", ResponseLog.body(state.getResponse()));
 
-        if (state.response.statusCode() == 201) {
-            state.userId = state.response.jsonPath().getString("userID");
-            logger.info("User created successfully with userId: {}", state.userId);
+        if (state.getResponse().statusCode() == 201) {
+            state.setUserId(state.getResponseAs(User.class).userId());
+            logger.info("User created successfully with userId: {}", state.getUserId());
         } else {
-            logger.warn("User creation failed: Status {}, Body: {}", state.response.statusCode(), state.response
-                    .getBody().asString());
+            logger.warn("User creation failed: Status {}, Body: {}", state.getResponse().statusCode(),
+                    ResponseLog.body(state.getResponse()));
         }
     }
 
     @When("I send a POST request to generate a token for the user")
     public void generateToken() {
-        state.response = ApiHelper.generateToken(state.username, state.password);
-        logger.debug("Generate token response: {}", state.response.getBody().asString());
+        state.setResponse(ApiHelper.generateToken(state.getUsername(), state.getPassword()));
+        logger.debug("Generate token response: {}", ResponseLog.body(state.getResponse()));
 
-        state.token = state.response.jsonPath().getString("token");
-        logger.info("Received token: {}", state.token);
+        state.setToken(state.getResponseAs(Token.class).token());
+        logger.info("Received token: {}", state.getToken());
     }
 
     @Then("the response status code should be {int}")
     public void validateStatusCode(int expected) {
-        int actual = state.response.statusCode();
+        int actual = state.getResponse().statusCode();
         logger.info("Validating response status: expected {}, actual {}", expected, actual);
-        assertEquals(expected, actual, state.response.body().asPrettyString());
+        assertEquals(expected, actual, ResponseLog.message(state.getResponse()));
     }
 
     @Then("the response status code should be 200 and contain a token")
     public void validateTokenResponse() {
         logger.info("Validating token response...");
-        assertEquals(200, state.response.statusCode());
-        assertNotNull(state.token, "Token should not be null");
+        assertEquals(200, state.getResponse().statusCode());
+        assertNotNull(state.getToken(), "Token should not be null");
     }
 
     @Then("the user should be retrievable by GET request")
     public void retrieveUser() {
-        logger.info("Retrieving user with userId: {}", state.userId);
-        state.response = ApiHelper.retrieveUser(state.userId, state.token);
-        logger.debug("Retrieve user response: {}", state.response.getBody().asString());
+        logger.info("Retrieving user with userId: {}", state.getUserId());
+        state.setResponse(ApiHelper.retrieveUser(state.getUserId(), state.getToken()));
+        logger.debug("Retrieve user response: {}", ResponseLog.body(state.getResponse()));
 
-        assertEquals(200, state.response.statusCode());
-        assertEquals(state.username, state.response.jsonPath().getString("username"));
+        assertEquals(200, state.getResponse().statusCode());
+        assertEquals(state.getUsername(), state.getResponseAs(User.class).username());
     }
 
     @Given("I generate a unique test username and an empty password")
     public void generateUsernameWithEmptyPassword() {
-        state.username = UserUtil.generateUniqueUsername();
-        state.password = "";
-        logger.info("Generated user with empty password - username: {}", state.username);
+        state.setUsername(UserUtil.generateUniqueUsername());
+        state.setPassword("");
+        logger.info("Generated user with empty password - username: {}", state.getUsername());
     }
 
     @Then("the response should contain {string}")
     public void responseShouldContain(String expectedMessage) {
-        String body = state.response.getBody().asString();
+        String body = state.getResponse().getBody().asString();
         logger.info("Validating response contains '{}'", expectedMessage);
-        assertTrue(body.contains(expectedMessage), "Expected response to contain: " + expectedMessage + "\nActual: " + body);
+        assertTrue(body.contains(expectedMessage),
+                () -> "Expected response to contain: " + expectedMessage + "\nActual: " + ResponseLog.render(state.getResponse()));
     }
 
     @When("I send a POST request to generate a token with invalid password")
     public void generateTokenWithInvalidPassword() {
-        logger.info("Sending token request with invalid password for user: {}", state.username);
-        state.response = ApiHelper.generateToken(state.username, "WrongPassword123!");
-        logger.debug("Token response: {}", state.response.getBody().asString());
-        state.token = state.response.jsonPath().getString("token");
+        logger.info("Sending token request with invalid password for user: {}", state.getUsername());
+        state.setResponse(ApiHelper.generateToken(state.getUsername(), "WrongPassword123!"));
+        logger.debug("Token response: {}", ResponseLog.body(state.getResponse()));
+        state.setToken(state.getResponseAs(Token.class).token());
     }
 
     @Given("I set an invalid token")
     public void setInvalidToken() {
-        state.token = "invalid_token_123";
+        state.setToken("invalid_token_123");
         logger.info("Set invalid token manually");
     }
 
     @When("I send a GET request to retrieve the user")
     public void retrieveUserWithToken() {
-        logger.info("Sending GET request with token: {}", state.token);
-        state.response = ApiHelper.retrieveUser(state.userId, state.token);
-        logger.debug("Response: {}", state.response.getBody().asString());
+        logger.info("Sending GET request with token: {}", state.getToken());
+        state.setResponse(ApiHelper.retrieveUser(state.getUserId(), state.getToken()));
+        logger.debug("Response: {}", ResponseLog.body(state.getResponse()));
     }
 
     @Given("I generate a unique test username and invalid password")
     public void generateUsernameWithInvalidPassword() {
-        state.username = UserUtil.generateUniqueUsername();
-        state.password = "Password123"; // missing non-alphanumeric
-        logger.info("Generated user with invalid password (missing special char): {}", state.username);
+        state.setUsername(UserUtil.generateUniqueUsername());
+        state.setPassword("Password123"); // missing non-alphanumeric
+        logger.info("Generated user with invalid password (missing special char): {}", state.getUsername());
     }
 
     @When("I send another POST request to create the same user again")
     public void sendDuplicateUserRequest() {
-        logger.info("Sending second user creation attempt for username: {}", state.username);
-        state.response = ApiHelper.createUser(state.username, state.password);
-        logger.debug("Duplicate user response: {}", state.response.getBody().asString());
+        logger.info("Sending second user creation attempt for username: {}", state.getUsername());
+        state.setResponse(ApiHelper.createUser(state.getUsername(), state.getPassword()));
+        logger.debug("Duplicate user response: {}", ResponseLog.body(state.getResponse()));
     }
 
     @When("I attempt to generate a token with an empty password")
     public void generateTokenWithEmptyPassword() {
-        logger.info("Attempting to generate token with empty password for user: {}", state.username);
-        state.response = ApiHelper.generateToken(state.username, "");
-        logger.debug("Empty password response: {}", state.response.getBody().asString());
+        logger.info("Attempting to generate token with empty password for user: {}", state.getUsername());
+        state.setResponse(ApiHelper.generateToken(state.getUsername(), ""));
+        logger.debug("Empty password response: {}", ResponseLog.body(state.getResponse()));
     }
 
     @Given("I generate a valid password only")
     public void generateOnlyPassword() {
-        state.username = null;
-        state.password = UserUtil.generateDefaultPassword();
-        logger.info("Generated password only: {}", state.password);
+        state.setUsername(null);
+        state.setPassword(UserUtil.generateDefaultPassword());
+        logger.info("Generated password only: {}", state.getPassword());
     }
 
     @When("I attempt to generate a token with missing username")
     public void generateTokenWithoutUsername() {
         logger.info("Attempting to generate token with missing username...");
-        String body = String.format("""
-                {
-                  "password": "%s"
-                }
-                """, state.password);
-
-        state.response = RestAssured.given().relaxedHTTPSValidation().contentType(ContentType.JSON).body(body)
-                                    .post("/Account/v1/GenerateToken");
-        logger.debug("Missing username response: {}", state.response.getBody().asString());
+        byte[] body = PASSWORD_ONLY.render(state.getPassword());
+
+        state.setResponse(ApiClient.request().contentType(ContentType.JSON).body(body)
+                                   .post("/Account/v1/GenerateToken"));
+        logger.debug("Missing username response: {}", ResponseLog.body(state.getResponse()));
+    }
+
+    @When("I attempt to generate a token with a malformed JSON body")
+    public void generateTokenWithMalformedBody() {
+        logger.info("Attempting to generate token with a malformed body for user: {}", state.getUsername());
+        state.setResponse(ApiClient.request().contentType(ContentType.JSON)
+                                   .body(TRUNCATED_CREDENTIALS.render(state.getUsername()))
+                                   .post("/Account/v1/GenerateToken"));
+        logger.debug("Malformed body response: {}", ResponseLog.body(state.getResponse()));
     }
 }
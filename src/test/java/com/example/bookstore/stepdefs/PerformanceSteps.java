@@ -0,0 +1,166 @@
+package com.example.bookstore.stepdefs;
+
+import com.example.bookstore.metrics.HttpMetrics;
+import com.example.bookstore.metrics.LastRequest;
+import com.example.bookstore.metrics.LatencyDistribution;
+import com.example.bookstore.util.ConfigUtil;
+import com.example.bookstore.util.LoggerUtil;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import org.slf4j.Logger;
+import org.slf4j.MDC;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Latency budget steps. Times come from {@link com.example.bookstore.metrics.TimingFilter}, which already measures
+ * every request, so the steps add no timing code of their own around the API calls.
+ * <p>
+ * Repeating a request sends the scenario's last request again from a pool of concurrent users. Each user first sends
+ * bookstore.perf.warmup requests that are left out of the distribution, then all users start the measured requests
+ * together.
+ */
+public class PerformanceSteps {
+
+    private static final Logger logger = LoggerUtil.getLogger(PerformanceSteps.class);
+
+    private static final int WARMUP = ConfigUtil.getInt("bookstore.perf.warmup", 2);
+    private static final int TIMEOUT_SECONDS = ConfigUtil.getInt("bookstore.perf.timeoutSeconds", 120);
+
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    private final ScenarioState state;
+
+    public PerformanceSteps(ScenarioState scenarioState) {
+        this.state = scenarioState;
+    }
+
+    @Then("the response time should be under {int} ms")
+    public void responseTimeShouldBeUnder(int budgetMs) {
+        List<HttpMetrics.Sample> samples = HttpMetrics.scenarioSamples();
+        assertFalse(samples.isEmpty(), "No request has been timed in this scenario");
+
+        HttpMetrics.Sample last = samples.get(samples.size() - 1);
+        logger.info("Validating response time of {}: {} ms, budget {} ms", last.endpoint(), String.format("%.1f", last.totalMs()), budgetMs);
+        assertTrue(last.totalMs() < budgetMs, () -> String.format(
+                "%s took %.1f ms, budget %d ms (dns %.1f ms, connect %.1f ms, tls %.1f ms, first byte %.1f ms)%nScenario requests: %s",
+                last.endpoint(), last.totalMs(), budgetMs, last.dnsMs(), last.connectMs(), last.tlsMs(), last.ttfbMs(),
+                LatencyDistribution.of(samples).describe()));
+    }
+
+    @When("I repeat the last request {int} times with {int} concurrent users")
+    public void repeatLastRequest(int times, int users) {
+        repeatLastRequest(times, users, WARMUP);
+    }
+
+    @When("I repeat the last request {int} times with {int} concurrent users after {int} warm-up requests each")
+    public void repeatLastRequest(int times, int users, int warmup) {
+        LastRequest request = LastRequest.current()
+                                         .orElseThrow(() -> new IllegalStateException("No request has been sent in this scenario"));
+        int userCount = Math.max(1, Math.min(users, times));
+        logger.info("Repeating {} {} times with {} users after {} warm-up requests each", request.endpoint(), times, userCount, warmup);
+
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        CountDownLatch warmedUp = new CountDownLatch(userCount);
+        AtomicBoolean failureLogged = new AtomicBoolean();
+        List<Callable<List<HttpMetrics.Sample>>> tasks = new ArrayList<>();
+        for (int user = 0; user < userCount; user++) {
+            int iterations = times / userCount + ((user < times % userCount) ? 1 : 0);
+            tasks.add(() -> runUser(request, mdc, warmup, iterations, warmedUp, failureLogged));
+        }
+
+        List<HttpMetrics.Sample> samples = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(userCount, runnable -> {
+            Thread thread = new Thread(runnable, "perf-user-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (Future<List<HttpMetrics.Sample>> result : executor.invokeAll(tasks, TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                samples.addAll(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while repeating " + request.endpoint(), e);
+        } catch (CancellationException e) {
+            throw new IllegalStateException("Repeating " + request.endpoint() + " did not finish within " + TIMEOUT_SECONDS + " s", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Repeating " + request.endpoint() + " failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        LatencyDistribution distribution = LatencyDistribution.of(samples);
+        state.setRepeatedLatencies(distribution);
+        logger.info("Repeated {}: {}", request.endpoint(), distribution.summary());
+    }
+
+    @Then("the p{int} response time should be under {int} ms")
+    public void percentileShouldBeUnder(int percentile, int budgetMs) {
+        // Without a repeated run, the budget applies to the requests this scenario has sent so far
+        LatencyDistribution distribution = (state.getRepeatedLatencies() != null) ? state.getRepeatedLatencies()
+                : LatencyDistribution.of(HttpMetrics.scenarioSamples());
+        assertTrue(distribution.count() > 0, "No request has been timed in this scenario");
+
+        double actual = distribution.percentileMs(percentile);
+        logger.info("Validating p{} response time: {} ms, budget {} ms", percentile, String.format("%.1f", actual), budgetMs);
+        assertTrue(actual < budgetMs, () -> String.format("p%d response time was %.1f ms, budget %d ms%n%s", percentile, actual,
+                budgetMs, distribution.describe()));
+    }
+
+    @Then("every repeated request should return status {int}")
+    public void everyRepeatedRequestShouldReturn(int expected) {
+        LatencyDistribution distribution = state.getRepeatedLatencies();
+        assertNotNull(distribution, "No request has been repeated in this scenario");
+        assertEquals(Map.of(expected, distribution.count()), distribution.statuses(), distribution::summary);
+    }
+
+    private static List<HttpMetrics.Sample> runUser(LastRequest request, Map<String, String> mdc, int warmup, int iterations,
+                                                    CountDownLatch warmedUp, AtomicBoolean failureLogged) throws InterruptedException {
+        if (mdc != null) {
+            MDC.setContextMap(mdc);
+        }
+        try {
+            for (int i = 0; i < warmup; i++) {
+                send(request, failureLogged);
+            }
+            warmedUp.countDown();
+            warmedUp.await();
+
+            HttpMetrics.startScenario();
+            for (int i = 0; i < iterations; i++) {
+                send(request, failureLogged);
+            }
+            return HttpMetrics.finishScenario();
+        } finally {
+            MDC.clear();
+        }
+    }
+
+    private static void send(LastRequest request, AtomicBoolean failureLogged) {
+        try {
+            request.send();
+        } catch (RuntimeException e) {
+            // TimingFilter has already recorded the failed request with status 0; the first failure explains the others
+            if (failureLogged.compareAndSet(false, true)) {
+                logger.warn("Repeated request to {} failed; further failures are logged at debug level", request.endpoint(), e);
+            } else {
+                logger.debug("Repeated request to {} failed", request.endpoint(), e);
+            }
+        }
+    }
+}
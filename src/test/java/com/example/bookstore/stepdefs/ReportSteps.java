@@ -0,0 +1,146 @@
+package com.example.bookstore.stepdefs;
+
+import com.example.bookstore.report.ReportMerger;
+import com.example.bookstore.util.LoggerUtil;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Steps for {@link ReportMerger}. The input streams are recorded message streams of real shards, kept on the test
+ * class path, so the merge sees the per-stream AST node IDs that separate Cucumber runs produce.
+ */
+public class ReportSteps {
+
+    private static final Logger logger = LoggerUtil.getLogger(ReportSteps.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private static final Path OUTPUT_DIR = Path.of("target", "merged-report-check");
+    private static final String MESSAGES_PREFIX = "window.CUCUMBER_MESSAGES = ";
+
+    private final List<Path> streams = new ArrayList<>();
+    private Path html;
+    private Path json;
+
+    @Given("the message streams {string} and {string} of one sharded run")
+    public void theMessageStreams(String first, String second) {
+        streams.add(resource(first));
+        streams.add(resource(second));
+    }
+
+    @When("the message streams are merged")
+    public void theMessageStreamsAreMerged() throws IOException {
+        html = OUTPUT_DIR.resolve("cucumber.html");
+        json = OUTPUT_DIR.resolve("cucumber.json");
+        ReportMerger.merge(streams, html, json);
+        logger.info("Merged {} into {} and {}", streams, html, json);
+    }
+
+    @Then("the merged JSON report should list each feature once, with its scenarios at lines")
+    public void theMergedJsonReportShouldListEachFeatureOnce(Map<String, String> expected) throws IOException {
+        Map<String, List<Integer>> actual = new HashMap<>();
+        for (JsonNode feature : mapper.readTree(json.toFile())) {
+            List<Integer> lines = new ArrayList<>();
+            feature.path("elements").forEach(element -> {
+                if ("scenario".equals(element.path("type").asText())) {
+                    lines.add(element.path("line").asInt());
+                }
+            });
+            assertNull(actual.put(feature.path("uri").asText(), lines), "Feature listed twice: " + feature.path("uri").asText());
+        }
+
+        Map<String, List<Integer>> expectedLines = new HashMap<>();
+        expected.forEach((uri, lines) -> expectedLines.put(uri, Arrays.stream(lines.split(",")).map(String::trim).map(Integer::valueOf).toList()));
+        assertEquals(expectedLines, actual, "Features and scenario lines of " + json);
+    }
+
+    @Then("the merged HTML report should contain each gherkin document once")
+    public void theMergedHtmlReportShouldContainEachDocumentOnce() throws IOException {
+        Set<String> uris = new HashSet<>();
+        for (JsonNode envelope : htmlMessages()) {
+            if (envelope.has("gherkinDocument")) {
+                String uri = envelope.path("gherkinDocument").path("uri").asText();
+                assertTrue(uris.add(uri), "Gherkin document written twice: " + uri);
+            }
+        }
+        assertFalse(uris.isEmpty(), "No gherkin document in " + html);
+    }
+
+    @Then("every pickle in the merged HTML report should refer to nodes of a gherkin document in the report")
+    public void everyPickleShouldReferToNodesOfADocument() throws IOException {
+        List<JsonNode> messages = htmlMessages();
+        Set<String> nodeIds = new HashSet<>();
+        messages.stream().filter(envelope -> envelope.has("gherkinDocument"))
+                .forEach(envelope -> collectNodeIds(envelope.path("gherkinDocument"), nodeIds));
+
+        int pickles = 0;
+        List<String> unresolved = new ArrayList<>();
+        for (JsonNode envelope : messages) {
+            JsonNode pickle = envelope.path("pickle");
+            if (pickle.isMissingNode()) {
+                continue;
+            }
+            pickles++;
+            List<String> ids = new ArrayList<>();
+            pickle.path("astNodeIds").forEach(id -> ids.add(id.asText()));
+            pickle.path("steps").forEach(step -> step.path("astNodeIds").forEach(id -> ids.add(id.asText())));
+            pickle.path("tags").forEach(tag -> ids.add(tag.path("astNodeId").asText()));
+            ids.stream().filter(id -> !nodeIds.contains(id)).forEach(id -> unresolved.add(pickle.path("name").asText() + ": " + id));
+        }
+        assertTrue(pickles > 0, "No pickle in " + html);
+        assertTrue(unresolved.isEmpty(), "Pickles refer to AST nodes that no written document has:\n  " + String.join("\n  ", unresolved));
+    }
+
+    /**
+     * Reads the messages the HTML template embeds as a JSON array
+     */
+    private List<JsonNode> htmlMessages() throws IOException {
+        String page = Files.readString(html, StandardCharsets.UTF_8);
+        int start = page.indexOf(MESSAGES_PREFIX);
+        assertTrue(start >= 0, "No messages in " + html);
+        List<JsonNode> messages = new ArrayList<>();
+        try (JsonParser parser = mapper.getFactory().createParser(page.substring(start + MESSAGES_PREFIX.length()))) {
+            mapper.<JsonNode>readTree(parser).forEach(messages::add);
+        }
+        return messages;
+    }
+
+    private static void collectNodeIds(JsonNode node, Set<String> ids) {
+        if (node.isObject() && node.has("id") && node.has("location")) {
+            ids.add(node.path("id").asText());
+        }
+        if (node.isContainerNode()) {
+            node.forEach(child -> collectNodeIds(child, ids));
+        }
+    }
+
+    private static Path resource(String name) {
+        URL url = ReportSteps.class.getClassLoader().getResource(name);
+        assertNotNull(url, "No test resource " + name);
+        try {
+            return Path.of(url.toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Cannot resolve test resource " + name, e);
+        }
+    }
+}
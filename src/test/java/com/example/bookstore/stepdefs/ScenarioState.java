@@ -1,11 +1,116 @@
 package com.example.bookstore.stepdefs;
 
+import com.example.bookstore.data.ExampleSource;
+import com.example.bookstore.metrics.LatencyDistribution;
+import com.example.bookstore.util.ResponseDecoder;
+import com.example.bookstore.util.TestUser;
 import io.restassured.response.Response;
 
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-scenario state shared between step classes. PicoContainer creates one instance per scenario, so an instance is
+ * only ever touched by the thread running that scenario and must never be stored in a static field.
+ */
 public class ScenarioState {
-    public String username;
-    public String password;
-    public String token;
-    public String userId;
-    public Response response;
-}
\ No newline at end of file
+    private String username;
+    private String password;
+    private String token;
+    private String userId;
+    private Response response;
+    private TestUser leasedUser;
+    private LatencyDistribution repeatedLatencies;
+    private ExampleSource exampleRows;
+    private Integer catalogCachedAt;
+    private final Map<Class<?>, Object> decodedResponse = new HashMap<>();
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public Response getResponse() {
+        return response;
+    }
+
+    public void setResponse(Response response) {
+        this.response = response;
+        decodedResponse.clear();
+    }
+
+    /**
+     * Decodes the current response into a typed record. The result is cached until the next {@link #setResponse}, so
+     * later steps reading the same response don't parse it again.
+     *
+     * @param type Book, BookCollection, User or Token
+     * @return decoded response
+     */
+    public <T> T getResponseAs(Class<T> type) {
+        return type.cast(decodedResponse.computeIfAbsent(type, key -> ResponseDecoder.decode(response, key)));
+    }
+
+    public TestUser getLeasedUser() {
+        return leasedUser;
+    }
+
+    public void setLeasedUser(TestUser leasedUser) {
+        this.leasedUser = leasedUser;
+    }
+
+    public LatencyDistribution getRepeatedLatencies() {
+        return repeatedLatencies;
+    }
+
+    public void setRepeatedLatencies(LatencyDistribution repeatedLatencies) {
+        this.repeatedLatencies = repeatedLatencies;
+    }
+
+    public ExampleSource getExampleRows() {
+        return exampleRows;
+    }
+
+    public void setExampleRows(ExampleSource exampleRows) {
+        this.exampleRows = exampleRows;
+    }
+
+    /**
+     * Returns the number of requests the scenario had sent when it switched to the cached catalog
+     *
+     * @return request count, or null when the scenario looks up the catalog without the cache
+     */
+    public Integer getCatalogCachedAt() {
+        return catalogCachedAt;
+    }
+
+    public void setCatalogCachedAt(Integer catalogCachedAt) {
+        this.catalogCachedAt = catalogCachedAt;
+    }
+}
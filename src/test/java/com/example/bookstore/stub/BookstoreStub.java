@@ -0,0 +1,523 @@
+package com.example.bookstore.stub;
+
+import com.example.bookstore.util.ConfigUtil;
+import com.example.bookstore.util.LoggerUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for the ToolsQA Bookstore API.
+ * <p>
+ * Implements the Account and BookStore endpoints used by the features with the same status codes and messages as the
+ * real service. Every route can be slowed down or made to fail through configuration:
+ * <ul>
+ *     <li>{@code bookstore.stub.latencyMs[.<route>]} - fixed delay before the response is sent</li>
+ *     <li>{@code bookstore.stub.jitterMs[.<route>]} - extra random delay of up to this many milliseconds</li>
+ *     <li>{@code bookstore.stub.errorRate[.<route>]} - share of requests (0-100 percent) answered with an error</li>
+ *     <li>{@code bookstore.stub.errorStatus} - status code of injected errors (default 503)</li>
+ * </ul>
+ * Route names are listed in {@link Route}. Delayed responses are written from a scheduler, so handler threads are never
+ * parked on injected latency and thousands of requests can be in flight at once.
+ */
+public class BookstoreStub {
+
+    /**
+     * Routes served by the stub, used as the suffix of per-route configuration keys
+     */
+    public enum Route {
+        createUser, getUser, deleteUser, generateToken, getBooks, getBook, addBooks, deleteBooks, deleteBook, replaceBook
+    }
+
+    private record StubResponse(int status, JsonNode body, Map<String, String> headers) {
+        StubResponse(int status, JsonNode body) {
+            this(status, body, Map.of());
+        }
+    }
+
+    private record RouteConfig(int latencyMs, int jitterMs, int errorRatePercent) {
+    }
+
+    private static final class StubUser {
+        final String userId;
+        final String username;
+        final String password;
+        final List<String> isbns = new ArrayList<>();
+
+        StubUser(String userId, String username, String password) {
+            this.userId = userId;
+            this.username = username;
+            this.password = password;
+        }
+    }
+
+    private static final Logger logger = LoggerUtil.getLogger(BookstoreStub.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Pattern PASSWORD_POLICY = Pattern.compile("^(?=.*\\d)(?=.*[a-z])(?=.*[A-Z])(?=.*[^a-zA-Z0-9]).{8,}$");
+    private static final Duration TOKEN_LIFETIME = Duration.ofDays(7);
+
+    private static BookstoreStub shared;
+
+    private final HttpServer server;
+    private final ExecutorService handlerExecutor;
+    private final ScheduledExecutorService delayScheduler;
+    private final Map<Route, RouteConfig> routeConfigs = new LinkedHashMap<>();
+    private final int errorStatus;
+
+    private final ArrayNode catalog;
+    private final String catalogEtag;
+    private final String catalogLastModified = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC));
+    private final Map<String, JsonNode> catalogByIsbn = new LinkedHashMap<>();
+    private final Map<String, StubUser> usersById = new ConcurrentHashMap<>();
+    private final Map<String, StubUser> usersByName = new ConcurrentHashMap<>();
+    private final Map<String, String> userIdsByToken = new ConcurrentHashMap<>();
+
+    private BookstoreStub(int port) throws IOException {
+        catalog = loadCatalog();
+        catalog.forEach(book -> catalogByIsbn.put(book.get("isbn").asText(), book));
+        catalogEtag = "\"" + Integer.toHexString(catalog.hashCode()) + "\"";
+
+        int globalLatency = ConfigUtil.getInt("bookstore.stub.latencyMs", 0);
+        int globalJitter = ConfigUtil.getInt("bookstore.stub.jitterMs", 0);
+        int globalErrorRate = ConfigUtil.getInt("bookstore.stub.errorRate", 0);
+        for (Route route : Route.values()) {
+            routeConfigs.put(route, new RouteConfig(ConfigUtil.getInt("bookstore.stub.latencyMs." + route, globalLatency),
+                    ConfigUtil.getInt("bookstore.stub.jitterMs." + route, globalJitter),
+                    ConfigUtil.getInt("bookstore.stub.errorRate." + route, globalErrorRate)));
+        }
+        errorStatus = ConfigUtil.getInt("bookstore.stub.errorStatus", 503);
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        handlerExecutor = Executors.newFixedThreadPool(ConfigUtil.getInt("bookstore.stub.threads", 64), runnable -> {
+            Thread thread = new Thread(runnable, "bookstore-stub-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        delayScheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "bookstore-stub-delay");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        server = HttpServer.create(new InetSocketAddress("localhost", port), ConfigUtil.getInt("bookstore.stub.backlog", 4096));
+        server.createContext("/", this::handle);
+        server.setExecutor(handlerExecutor);
+    }
+
+    /**
+     * Starts a stub on the given port
+     *
+     * @param port Port to listen on, 0 for any free port
+     * @return running stub
+     */
+    public static BookstoreStub start(int port) {
+        try {
+            BookstoreStub stub = new BookstoreStub(port);
+            stub.server.start();
+            logger.info("Local Bookstore stub listening on {}", stub.baseUrl());
+            return stub;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to start local Bookstore stub", e);
+        }
+    }
+
+    /**
+     * Returns the stub shared by the whole JVM, starting it on first use
+     *
+     * @return running stub
+     */
+    public static synchronized BookstoreStub shared() {
+        if (shared == null) {
+            shared = start(ConfigUtil.getInt("bookstore.stub.port", 0));
+            Runtime.getRuntime().addShutdownHook(new Thread(shared::stop, "bookstore-stub-shutdown"));
+        }
+        return shared;
+    }
+
+    /**
+     * Returns the base URL the stub is reachable on
+     *
+     * @return base URL
+     */
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the stub
+     */
+    public void stop() {
+        server.stop(0);
+        delayScheduler.shutdownNow();
+        handlerExecutor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            Route route = route(method, path);
+            if (route == null) {
+                send(exchange, new StubResponse(404, error("404", "Not Found")));
+                return;
+            }
+
+            JsonNode body = readBody(exchange);
+            RouteConfig config = routeConfigs.get(route);
+            StubResponse response = injectError(config) ? new StubResponse(errorStatus, error(String.valueOf(errorStatus), "Injected fault"))
+                                                        : dispatch(route, exchange, body);
+
+            long delay = config.latencyMs() + (config.jitterMs() > 0 ? ThreadLocalRandom.current().nextInt(config.jitterMs() + 1) : 0);
+            if (delay > 0) {
+                delayScheduler.schedule(() -> send(exchange, response), delay, TimeUnit.MILLISECONDS);
+            } else {
+                send(exchange, response);
+            }
+        } catch (JsonProcessingException e) {
+            send(exchange, new StubResponse(400, error("1200", "Invalid JSON payload")));
+        } catch (RuntimeException | IOException e) {
+            logger.warn("Local Bookstore stub failed to handle request", e);
+            send(exchange, new StubResponse(500, error("500", "Internal Server Error")));
+        }
+    }
+
+    private static Route route(String method, String path) {
+        if (path.equals("/Account/v1/User")) {
+            return method.equals("POST") ? Route.createUser : null;
+        }
+        if (path.startsWith("/Account/v1/User/")) {
+            return switch (method) {
+                case "GET" -> Route.getUser;
+                case "DELETE" -> Route.deleteUser;
+                default -> null;
+            };
+        }
+        if (path.equals("/Account/v1/GenerateToken")) {
+            return method.equals("POST") ? Route.generateToken : null;
+        }
+        if (path.equals("/BookStore/v1/Books")) {
+            return switch (method) {
+                case "GET" -> Route.getBooks;
+                case "POST" -> Route.addBooks;
+                case "DELETE" -> Route.deleteBooks;
+                default -> null;
+            };
+        }
+        if (path.equals("/BookStore/v1/Book")) {
+            return switch (method) {
+                case "GET" -> Route.getBook;
+                case "DELETE" -> Route.deleteBook;
+                default -> null;
+            };
+        }
+        if (path.startsWith("/BookStore/v1/Books/")) {
+            return method.equals("PUT") ? Route.replaceBook : null;
+        }
+        return null;
+    }
+
+    private StubResponse dispatch(Route route, HttpExchange exchange, JsonNode body) {
+        URI uri = exchange.getRequestURI();
+        String pathParam = uri.getPath().substring(uri.getPath().lastIndexOf('/') + 1);
+        StubUser caller = authenticate(exchange);
+
+        return switch (route) {
+            case createUser -> createUser(body);
+            case generateToken -> generateToken(body);
+            case getUser -> getUser(caller, pathParam);
+            case deleteUser -> deleteUser(caller, pathParam);
+            case getBooks -> getBooks(exchange);
+            case getBook -> getBook(queryParam(uri, "ISBN"));
+            case addBooks -> addBooks(caller, body);
+            case deleteBooks -> deleteBooks(caller, queryParam(uri, "UserId"));
+            case deleteBook -> deleteBook(caller, body);
+            case replaceBook -> replaceBook(caller, pathParam, body);
+        };
+    }
+
+    private StubResponse createUser(JsonNode body) {
+        String username = text(body, "userName");
+        String password = text(body, "password");
+        if (username == null || username.isEmpty() || password == null || password.isEmpty()) {
+            return new StubResponse(400, error("1200", "UserName and Password required."));
+        }
+        if (!PASSWORD_POLICY.matcher(password).matches()) {
+            return new StubResponse(400, error("1300", "Passwords must have at least one non alphanumeric character, one digit ('0'-'9'), one uppercase ('A'-'Z'), one lowercase ('a'-'z'), one special character and Password must be eight characters or longer."));
+        }
+
+        StubUser user = new StubUser(UUID.randomUUID().toString(), username, password);
+        if (usersByName.putIfAbsent(username, user) != null) {
+            return new StubResponse(406, error("1204", "User exists!"));
+        }
+        usersById.put(user.userId, user);
+
+        ObjectNode response = mapper.createObjectNode().put("userID", user.userId).put("username", username);
+        response.putArray("books");
+        return new StubResponse(201, response);
+    }
+
+    private StubResponse generateToken(JsonNode body) {
+        String username = text(body, "userName");
+        String password = text(body, "password");
+        if (username == null || username.isEmpty() || password == null || password.isEmpty()) {
+            return new StubResponse(400, error("1200", "UserName and Password required."));
+        }
+
+        StubUser user = usersByName.get(username);
+        ObjectNode response = mapper.createObjectNode();
+        if (user == null || !user.password.equals(password)) {
+            response.putNull("token").putNull("expires").put("status", "Failed").put("result", "User authorization failed.");
+            return new StubResponse(200, response);
+        }
+
+        String token = UUID.randomUUID().toString().replace("-", "");
+        userIdsByToken.put(token, user.userId);
+        response.put("token", token).put("expires", Instant.now().plus(TOKEN_LIFETIME).toString())
+                .put("status", "Success").put("result", "User authorized successfully.");
+        return new StubResponse(200, response);
+    }
+
+    private StubResponse getUser(StubUser caller, String userId) {
+        if (caller == null || !caller.userId.equals(userId)) {
+            return notAuthorized();
+        }
+        ObjectNode response = mapper.createObjectNode().put("userId", caller.userId).put("username", caller.username);
+        response.set("books", booksOf(caller));
+        return new StubResponse(200, response);
+    }
+
+    private StubResponse deleteUser(StubUser caller, String userId) {
+        if (caller == null || !caller.userId.equals(userId)) {
+            return notAuthorized();
+        }
+        usersById.remove(caller.userId);
+        usersByName.remove(caller.username);
+        userIdsByToken.values().removeIf(caller.userId::equals);
+        return new StubResponse(204, null);
+    }
+
+    private StubResponse getBooks(HttpExchange exchange) {
+        Map<String, String> headers = Map.of("ETag", catalogEtag, "Last-Modified", catalogLastModified);
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+        if (catalogEtag.equals(ifNoneMatch) || (ifNoneMatch == null && catalogLastModified.equals(ifModifiedSince))) {
+            return new StubResponse(304, null, headers);
+        }
+        return new StubResponse(200, mapper.createObjectNode().set("books", catalog), headers);
+    }
+
+    private StubResponse getBook(String isbn) {
+        JsonNode book = (isbn == null) ? null : catalogByIsbn.get(isbn);
+        return (book == null) ? notInCatalog() : new StubResponse(200, book);
+    }
+
+    private StubResponse addBooks(StubUser caller, JsonNode body) {
+        if (caller == null) {
+            return notAuthorized();
+        }
+        if (!caller.userId.equals(text(body, "userId"))) {
+            return new StubResponse(401, error("1207", "User Id not correct!"));
+        }
+
+        List<String> isbns = new ArrayList<>();
+        JsonNode collection = (body == null) ? null : body.get("collectionOfIsbns");
+        if (collection != null) {
+            collection.forEach(item -> isbns.add(text(item, "isbn")));
+        }
+        if (isbns.isEmpty() || !isbns.stream().allMatch(catalogByIsbn::containsKey)) {
+            return notInCatalog();
+        }
+
+        synchronized (caller) {
+            if (isbns.stream().anyMatch(caller.isbns::contains)) {
+                return new StubResponse(400, error("1210", "ISBN already present in the User's Collection!"));
+            }
+            caller.isbns.addAll(isbns);
+        }
+
+        ObjectNode response = mapper.createObjectNode();
+        ArrayNode books = response.putArray("books");
+        isbns.forEach(isbn -> books.addObject().put("isbn", isbn));
+        return new StubResponse(201, response);
+    }
+
+    private StubResponse deleteBooks(StubUser caller, String userId) {
+        if (caller == null) {
+            return notAuthorized();
+        }
+        if (!caller.userId.equals(userId)) {
+            return new StubResponse(401, error("1207", "User Id not correct!"));
+        }
+        synchronized (caller) {
+            caller.isbns.clear();
+        }
+        return new StubResponse(204, null);
+    }
+
+    private StubResponse deleteBook(StubUser caller, JsonNode body) {
+        if (caller == null) {
+            return notAuthorized();
+        }
+        String userId = text(body, "userId");
+        if (userId == null || userId.isEmpty()) {
+            return new StubResponse(400, error("1200", "User Id is required."));
+        }
+        if (!caller.userId.equals(userId)) {
+            return new StubResponse(401, error("1207", "User Id not correct!"));
+        }
+        synchronized (caller) {
+            if (!caller.isbns.remove(text(body, "isbn"))) {
+                return notInUserCollection();
+            }
+        }
+        return new StubResponse(204, null);
+    }
+
+    private StubResponse replaceBook(StubUser caller, String oldIsbn, JsonNode body) {
+        if (caller == null) {
+            return notAuthorized();
+        }
+        if (!caller.userId.equals(text(body, "userId"))) {
+            return new StubResponse(401, error("1207", "User Id not correct!"));
+        }
+        String newIsbn = text(body, "isbn");
+        synchronized (caller) {
+            int index = caller.isbns.indexOf(oldIsbn);
+            if (index < 0) {
+                return notInUserCollection();
+            }
+            if (newIsbn == null || !catalogByIsbn.containsKey(newIsbn)) {
+                return notInCatalog();
+            }
+            caller.isbns.set(index, newIsbn);
+        }
+
+        ObjectNode response = mapper.createObjectNode().put("userId", caller.userId).put("username", caller.username);
+        response.set("books", booksOf(caller));
+        return new StubResponse(200, response);
+    }
+
+    private StubUser authenticate(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) {
+            return null;
+        }
+        String userId = userIdsByToken.get(header.substring("Bearer ".length()));
+        return (userId == null) ? null : usersById.get(userId);
+    }
+
+    private ArrayNode booksOf(StubUser user) {
+        ArrayNode books = mapper.createArrayNode();
+        synchronized (user) {
+            user.isbns.forEach(isbn -> books.add(catalogByIsbn.get(isbn)));
+        }
+        return books;
+    }
+
+    private boolean injectError(RouteConfig config) {
+        return config.errorRatePercent() > 0 && ThreadLocalRandom.current().nextInt(100) < config.errorRatePercent();
+    }
+
+    private static StubResponse notAuthorized() {
+        return new StubResponse(401, error("1200", "User not authorized!"));
+    }
+
+    private static StubResponse notInCatalog() {
+        return new StubResponse(400, error("1205", "ISBN supplied is not available in Books Collection!"));
+    }
+
+    private static StubResponse notInUserCollection() {
+        return new StubResponse(400, error("1206", "ISBN supplied is not available in User's Collection!"));
+    }
+
+    private static ObjectNode error(String code, String message) {
+        return mapper.createObjectNode().put("code", code).put("message", message);
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = (node == null) ? null : node.get(field);
+        return (value == null || value.isNull()) ? null : value.asText();
+    }
+
+    private static String queryParam(URI uri, String name) {
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static JsonNode readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readAllBytes();
+            return (bytes.length == 0) ? null : mapper.readTree(bytes);
+        }
+    }
+
+    private static void send(HttpExchange exchange, StubResponse response) {
+        try {
+            response.headers().forEach(exchange.getResponseHeaders()::set);
+            if (response.body() == null) {
+                exchange.sendResponseHeaders(response.status(), -1);
+                return;
+            }
+            byte[] bytes = mapper.writeValueAsBytes(response.body());
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(response.status(), bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            logger.debug("Client went away before the stub response was written", e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static ArrayNode loadCatalog() throws IOException {
+        try (InputStream in = BookstoreStub.class.getResourceAsStream("/stub/books.json")) {
+            if (in == null) {
+                throw new IOException("Missing /stub/books.json on the classpath");
+            }
+            return (ArrayNode) mapper.readTree(in);
+        }
+    }
+}
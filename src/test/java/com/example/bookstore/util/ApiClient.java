@@ -0,0 +1,121 @@
+package com.example.bookstore.util;
+
+import com.example.bookstore.cassette.CassetteFilter;
+import com.example.bookstore.load.RateLimitFilter;
+import com.example.bookstore.metrics.ConnectionTimers;
+import com.example.bookstore.metrics.TimingFilter;
+import com.example.bookstore.stub.BookstoreStub;
+import io.restassured.RestAssured;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.config.HttpClientConfig;
+import io.restassured.config.RestAssuredConfig;
+import io.restassured.specification.RequestSpecification;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.ssl.SSLContexts;
+import org.slf4j.Logger;
+
+import javax.net.ssl.SSLContext;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared HTTP client layer for all Bookstore API calls.
+ * <p>
+ * All threads share one keep-alive connection pool and one relaxed SSL context, so TCP connections and TLS sessions
+ * are reused across requests instead of being re-established per call. RestAssured mutates the HttpClient it is given
+ * while sending a request, so each thread gets its own client instance (and base RequestSpecification) on top of the
+ * shared pool. Every request goes through {@link RateLimitFilter}, which only paces requests during load runs, then
+ * {@link TimingFilter}, which feeds the per-endpoint latency histograms, and finally {@link CassetteFilter}, which
+ * records or replays the exchange when bookstore.cassette.mode is set.
+ */
+@SuppressWarnings("deprecation") // RestAssured 5 still requires the HttpClient 4.x AbstractHttpClient API
+public class ApiClient {
+
+    private static final String REMOTE_URL = "https://bookstore.toolsqa.com";
+
+    private static final Logger logger = LoggerUtil.getLogger(ApiClient.class);
+
+    private static final String BASE_URL = resolveBaseUrl();
+
+    private static final int POOL_SIZE = ConfigUtil.getInt("bookstore.http.pool.size", 20);
+    private static final int KEEP_ALIVE_MS = ConfigUtil.getInt("bookstore.http.keepAliveMs", 30_000);
+
+    private static final PoolingClientConnectionManager CONNECTION_MANAGER = createConnectionManager();
+
+    private static final RateLimitFilter RATE_LIMIT_FILTER = new RateLimitFilter();
+    private static final TimingFilter TIMING_FILTER = new TimingFilter();
+    private static final CassetteFilter CASSETTE_FILTER = new CassetteFilter();
+
+    private static final ThreadLocal<RequestSpecification> BASE_SPEC = ThreadLocal.withInitial(ApiClient::createBaseSpec);
+
+    /**
+     * Starts a new request from the calling thread's prebuilt base specification
+     *
+     * @return RequestSpecification bound to the shared connection pool
+     */
+    public static RequestSpecification request() {
+        return RestAssured.given().spec(BASE_SPEC.get());
+    }
+
+    /**
+     * Returns the base URL all requests go to. With -Dbookstore.target=local this is the in-process
+     * {@link BookstoreStub}, which is started on first use; otherwise it is bookstore.baseUrl (the public service by
+     * default).
+     *
+     * @return base URL
+     */
+    public static String baseUrl() {
+        return BASE_URL;
+    }
+
+    private static String resolveBaseUrl() {
+        String target = ConfigUtil.getString("bookstore.target", "remote");
+        String url = switch (target) {
+            case "local" -> BookstoreStub.shared().baseUrl();
+            case "remote" -> ConfigUtil.getString("bookstore.baseUrl", REMOTE_URL);
+            default -> throw new IllegalArgumentException("bookstore.target must be 'local' or 'remote' but was: " + target);
+        };
+        logger.info("Running against {} target {}", target, url);
+        return url;
+    }
+
+    private static RequestSpecification createBaseSpec() {
+        HttpClientConfig httpClientConfig = HttpClientConfig.httpClientConfig()
+                                                            .httpClientFactory(ApiClient::createHttpClient)
+                                                            .reuseHttpClientInstance();
+
+        return new RequestSpecBuilder().setBaseUri(BASE_URL).addFilter(RATE_LIMIT_FILTER).addFilter(TIMING_FILTER)
+                                       .addFilter(CASSETTE_FILTER).setConfig(RestAssuredConfig.config().httpClient(httpClientConfig)).build();
+    }
+
+    private static DefaultHttpClient createHttpClient() {
+        DefaultHttpClient client = new DefaultHttpClient(CONNECTION_MANAGER);
+        client.setKeepAliveStrategy((response, context) -> KEEP_ALIVE_MS);
+        ConnectionTimers.instrument(client);
+        return client;
+    }
+
+    private static PoolingClientConnectionManager createConnectionManager() {
+        SchemeRegistry schemeRegistry = new SchemeRegistry();
+        schemeRegistry.register(new Scheme("http", 80, ConnectionTimers.plainSocketFactory()));
+        schemeRegistry.register(new Scheme("https", 443, ConnectionTimers.sslSocketFactory(createRelaxedSslContext())));
+
+        PoolingClientConnectionManager manager = new PoolingClientConnectionManager(schemeRegistry, KEEP_ALIVE_MS, TimeUnit.MILLISECONDS, ConnectionTimers.dnsResolver());
+        manager.setMaxTotal(POOL_SIZE);
+        manager.setDefaultMaxPerRoute(POOL_SIZE);
+
+        logger.info("HTTP connection pool initialized with {} connections", POOL_SIZE);
+        return manager;
+    }
+
+    private static SSLContext createRelaxedSslContext() {
+        try {
+            return SSLContexts.custom().loadTrustMaterial(null, (chain, authType) -> true).build();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to create SSL context", e);
+        }
+    }
+}
@@ -1,9 +1,9 @@
 package com.example.bookstore.util;
 
 import com.example.bookstore.stepdefs.LoginSteps;
-import io.restassured.RestAssured;
 import io.restassured.http.ContentType;
 import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
 import org.slf4j.Logger;
 
 import java.util.List;
@@ -11,9 +11,15 @@ import java.util.Map;
 
 public class ApiHelper {
 
-    private static final String BASE_URL = "https://bookstore.toolsqa.com";
     private static final Logger logger = LoggerUtil.getLogger(LoginSteps.class);
 
+    private static final PayloadTemplate CREDENTIALS = PayloadTemplate.compile("""
+            {
+              "userName": "${username}",
+              "password": "${password}"
+            }
+            """);
+
     /**
      * Creates a new user
      *
@@ -22,16 +28,14 @@ public class ApiHelper {
      * @return Response
      */
     public static Response createUser(String username, String password) {
-        String payload = String.format("""
-                {
-                  "userName": "%s",
-                  "password": "%s"
-                }
-                """, username, password);
+        byte[] payload = credentialsPayload(username, password);
         logger.info("Creating user: {}", username);
-        Response response = RestAssured.given().relaxedHTTPSValidation().baseUri(BASE_URL).contentType(ContentType.JSON)
-                                       .body(payload).post("/Account/v1/User");
-        logger.debug("Create user response: {}", response.getBody().asString());
+        Response response = ApiClient.request().contentType(ContentType.JSON)
+                                     .body(payload).post("/Account/v1/User");
+        logger.debug("Create user response: {}", ResponseLog.body(response));
+        if (response.getStatusCode() == 201) {
+            ResourceTracker.accountCreated(username, password, ResponseDecoder.field(response, "userID"));
+        }
 
         return response;
     }
@@ -44,15 +48,10 @@ public class ApiHelper {
      * @return Response
      */
     public static Response generateToken(String username, String password) {
-        String payload = String.format("""
-                {
-                  "userName": "%s",
-                  "password": "%s"
-                }
-                """, username, password);
-
-        return RestAssured.given().relaxedHTTPSValidation().baseUri(BASE_URL).contentType(ContentType.JSON)
-                          .body(payload).post("/Account/v1/GenerateToken");
+        byte[] payload = credentialsPayload(username, password);
+
+        return ApiClient.request().contentType(ContentType.JSON)
+                        .body(payload).post("/Account/v1/GenerateToken");
     }
 
     /**
@@ -63,8 +62,8 @@ public class ApiHelper {
      * @return Response
      */
     public static Response retrieveUser(String userId, String token) {
-        return RestAssured.given().relaxedHTTPSValidation().baseUri(BASE_URL).header("Authorization", "Bearer " + token)
-                          .get("/Account/v1/User/" + userId);
+        return ApiClient.request().header("Authorization", "Bearer " + token)
+                        .get("/Account/v1/User/" + userId);
     }
 
     /**
@@ -73,7 +72,25 @@ public class ApiHelper {
      * @return Response
      */
     public static Response getAllBooks() {
-        return RestAssured.given().relaxedHTTPSValidation().baseUri(BASE_URL).get("/BookStore/v1/Books");
+        return ApiClient.request().get("/BookStore/v1/Books");
+    }
+
+    /**
+     * Retrieves all books from the catalog unless they are unchanged since the given validators
+     *
+     * @param etag         ETag of the cached catalog (optional)
+     * @param lastModified Last-Modified of the cached catalog (optional)
+     * @return Response, 304 when the catalog has not changed
+     */
+    public static Response getAllBooksIfChanged(String etag, String lastModified) {
+        RequestSpecification request = ApiClient.request();
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            request.header("If-Modified-Since", lastModified);
+        }
+        return request.get("/BookStore/v1/Books");
     }
 
     /**
@@ -83,8 +100,8 @@ public class ApiHelper {
      * @return Response
      */
     public static Response getBookByIsbn(String isbn) {
-        return RestAssured.given().relaxedHTTPSValidation().baseUri(BASE_URL).queryParam("ISBN", isbn)
-                          .get("/BookStore/v1/Book");
+        return ApiClient.request().queryParam("ISBN", isbn)
+                        .get("/BookStore/v1/Book");
     }
 
     /**
@@ -96,12 +113,14 @@ public class ApiHelper {
      * @return Response
      */
     public static Response addBooksToUser(String token, String userId, List<String> isbns) {
-        List<Map<String, String>> isbnList = isbns.stream().map(isbn -> Map.of("isbn", isbn)).toList();
-
-        Map<String, Object> payload = Map.of("userId", userId, "collectionOfIsbns", isbnList);
+        Map<String, Object> payload = addBooksPayload(userId, isbns);
 
-        return RestAssured.given().relaxedHTTPSValidation().baseUri(BASE_URL).header("Authorization", "Bearer " + token)
-                          .contentType(ContentType.JSON).body(payload).post("/BookStore/v1/Books");
+        Response response = ApiClient.request().header("Authorization", "Bearer " + token)
+                                     .contentType(ContentType.JSON).body(payload).post("/BookStore/v1/Books");
+        if (response.getStatusCode() == 201) {
+            ResourceTracker.booksAdded(userId, token);
+        }
+        return response;
     }
 
     /**
@@ -124,14 +143,14 @@ public class ApiHelper {
 
         Map<String, String> headers = (customHeaders != null) ? customHeaders : Map.of("accept", "application/json", "Authorization", "Bearer " + token);
 
-        Map<String, Object> payload = (payloadOverride != null) ? payloadOverride : Map.of("userId", userId, "isbn", newIsbn);
+        Map<String, Object> payload = (payloadOverride != null) ? payloadOverride : replaceBookPayload(userId, newIsbn);
 
         logger.info("Replacing book {} with {} for user {}", oldIsbn, newIsbn, userId);
 
-        Response response = RestAssured.given().relaxedHTTPSValidation().headers(headers).contentType(ContentType.JSON)
-                                       .body(payload).put(url);
+        Response response = ApiClient.request().headers(headers).contentType(ContentType.JSON)
+                                     .body(payload).put(url);
 
-        logger.debug("Update book response: {} - {}", response.getStatusCode(), response.getBody().asString());
+        logger.debug("Update book response: {} - {}", response.getStatusCode(), ResponseLog.body(response));
 
         return response;
     }
@@ -147,7 +166,66 @@ public class ApiHelper {
     public static Response deleteBookForUser(String token, String userId, String isbn) {
         Map<String, Object> payload = Map.of("userId", userId, "isbn", isbn);
 
-        return RestAssured.given().relaxedHTTPSValidation().baseUri(BASE_URL).header("Authorization", "Bearer " + token)
-                          .contentType(ContentType.JSON).body(payload).delete("/BookStore/v1/Book");
+        return ApiClient.request().header("Authorization", "Bearer " + token)
+                        .contentType(ContentType.JSON).body(payload).delete("/BookStore/v1/Book");
+    }
+
+    /**
+     * Deletes all books from the user's collection
+     *
+     * @param token  Token
+     * @param userId User ID
+     * @return Response
+     */
+    public static Response deleteAllBooksForUser(String token, String userId) {
+        return ApiClient.request().header("Authorization", "Bearer " + token).queryParam("UserId", userId)
+                        .delete("/BookStore/v1/Books");
+    }
+
+    /**
+     * Deletes a user account together with its book collection
+     *
+     * @param userId User ID
+     * @param token  Token of that user
+     * @return Response
+     */
+    public static Response deleteUser(String userId, String token) {
+        return ApiClient.request().header("Authorization", "Bearer " + token)
+                        .delete("/Account/v1/User/" + userId);
+    }
+
+    /**
+     * Builds the body of the create user and generate token requests
+     *
+     * @param username Username
+     * @param password Password
+     * @return JSON payload
+     */
+    public static byte[] credentialsPayload(String username, String password) {
+        return CREDENTIALS.render(username, password);
+    }
+
+    /**
+     * Builds the body of the add books request
+     *
+     * @param userId User ID
+     * @param isbns  ISBNs of the books to add
+     * @return payload, serialized to JSON by RestAssured
+     */
+    public static Map<String, Object> addBooksPayload(String userId, List<String> isbns) {
+        List<Map<String, String>> isbnList = isbns.stream().map(isbn -> Map.of("isbn", isbn)).toList();
+
+        return Map.of("userId", userId, "collectionOfIsbns", isbnList);
+    }
+
+    /**
+     * Builds the body of the replace book request
+     *
+     * @param userId  User ID
+     * @param newIsbn ISBN of the new book
+     * @return payload, serialized to JSON by RestAssured
+     */
+    public static Map<String, Object> replaceBookPayload(String userId, String newIsbn) {
+        return Map.of("userId", userId, "isbn", newIsbn);
     }
 }
@@ -0,0 +1,87 @@
+package com.example.bookstore.util;
+
+import com.example.bookstore.model.Book;
+import com.example.bookstore.model.BookCollection;
+import io.restassured.response.Response;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Opt-in cache of the read-only book catalog with an ISBN index.
+ * <p>
+ * With bookstore.catalogCache.enabled=true the catalog is fetched once and kept for bookstore.catalogCache.ttlSeconds.
+ * After that it is revalidated with If-None-Match / If-Modified-Since when the server sent an ETag or Last-Modified, so
+ * an unchanged catalog costs a bodyless 304 instead of a full download. When disabled every lookup fetches the catalog,
+ * unless the caller asks for {@link #cachedIndex()} explicitly.
+ * <p>
+ * Only for steps that need catalog data; scenarios that test the catalog endpoints call {@link ApiHelper} directly.
+ */
+public class CatalogCache {
+
+    private static final Logger logger = LoggerUtil.getLogger(CatalogCache.class);
+
+    private static final boolean ENABLED = ConfigUtil.getBoolean("bookstore.catalogCache.enabled", false);
+    private static final Duration TTL = Duration.ofSeconds(ConfigUtil.getInt("bookstore.catalogCache.ttlSeconds", 300));
+
+    private record Snapshot(Map<String, Book> booksByIsbn, String etag, String lastModified, Instant expiresAt) {
+    }
+
+    private static volatile Snapshot snapshot;
+
+    /**
+     * Returns the catalog indexed by ISBN, in catalog order
+     *
+     * @return read-only ISBN index
+     */
+    public static Map<String, Book> index() {
+        return ENABLED ? cachedIndex() : load(null).booksByIsbn();
+    }
+
+    /**
+     * Returns the cached catalog indexed by ISBN, whether or not bookstore.catalogCache.enabled is set
+     *
+     * @return read-only ISBN index
+     */
+    public static Map<String, Book> cachedIndex() {
+        Snapshot current = snapshot;
+        if (current != null && Instant.now().isBefore(current.expiresAt())) {
+            return current.booksByIsbn();
+        }
+        synchronized (CatalogCache.class) {
+            current = snapshot;
+            if (current == null || !Instant.now().isBefore(current.expiresAt())) {
+                snapshot = load(current);
+            }
+            return snapshot.booksByIsbn();
+        }
+    }
+
+    private static Snapshot load(Snapshot previous) {
+        boolean canRevalidate = previous != null && (previous.etag() != null || previous.lastModified() != null);
+        Response response = canRevalidate ? ApiHelper.getAllBooksIfChanged(previous.etag(), previous.lastModified())
+                                          : ApiHelper.getAllBooks();
+
+        if (canRevalidate && response.getStatusCode() == 304) {
+            logger.debug("Catalog unchanged, extending cache for {}", TTL);
+            return new Snapshot(previous.booksByIsbn(), previous.etag(), previous.lastModified(), Instant.now().plus(TTL));
+        }
+        if (response.getStatusCode() != 200) {
+            throw new IllegalStateException("Failed to load book catalog. Status: " + response.getStatusCode());
+        }
+
+        BookCollection catalog = ResponseDecoder.decode(response, BookCollection.class);
+        Map<String, Book> booksByIsbn = new LinkedHashMap<>();
+        if (catalog.books() != null) {
+            catalog.books().forEach(book -> booksByIsbn.put(book.isbn(), book));
+        }
+        logger.debug("Loaded catalog with {} books", booksByIsbn.size());
+
+        return new Snapshot(Collections.unmodifiableMap(booksByIsbn), response.getHeader("ETag"),
+                response.getHeader("Last-Modified"), Instant.now().plus(TTL));
+    }
+}
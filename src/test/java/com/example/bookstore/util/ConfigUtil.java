@@ -0,0 +1,51 @@
+package com.example.bookstore.util;
+
+public class ConfigUtil {
+
+    /**
+     * Returns a configuration value. System properties win over environment variables, which are looked up by
+     * upper-casing the key and replacing dots with underscores (bookstore.http.pool.size -> BOOKSTORE_HTTP_POOL_SIZE).
+     *
+     * @param key          Property key
+     * @param defaultValue Value returned when the key is not set
+     * @return configured value or the default
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.isBlank()) {
+            value = System.getenv(key.toUpperCase().replace('.', '_'));
+        }
+        return (value == null || value.isBlank()) ? defaultValue : value.trim();
+    }
+
+    /**
+     * Returns a configuration value as an int
+     *
+     * @param key          Property key
+     * @param defaultValue Value returned when the key is not set
+     * @return configured value or the default
+     */
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Property " + key + " must be an integer but was: " + value, e);
+        }
+    }
+
+    /**
+     * Returns a configuration value as a boolean
+     *
+     * @param key          Property key
+     * @param defaultValue Value returned when the key is not set
+     * @return configured value or the default
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return (value == null) ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
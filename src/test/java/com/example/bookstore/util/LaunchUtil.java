@@ -0,0 +1,16 @@
+package com.example.bookstore.util;
+
+public class LaunchUtil {
+
+    /**
+     * Returns whether a main class was started directly with {@code java}. Under {@code exec:java} main() runs inside
+     * Maven's JVM, where sun.java.command names Maven's launcher; there a tool must not call System.exit, or Maven dies
+     * before it can report, so it returns or throws instead.
+     *
+     * @param mainClass Class whose main() is running
+     * @return true if the JVM was launched with that class as its main class
+     */
+    public static boolean launchedDirectly(Class<?> mainClass) {
+        return System.getProperty("sun.java.command", "").startsWith(mainClass.getName());
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.bookstore.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * JSON request body template, compiled once and rendered straight to bytes.
+ * <p>
+ * Placeholders are written as {@code ${name}} inside a JSON string, e.g. {@code {"userName": "${username}"}}. Compiling
+ * splits the template into UTF-8 literal segments and placeholder slots; rendering copies the segments and writes each
+ * value JSON-escaped into a per-thread byte buffer, so a quote or backslash in a value can never break the body. The
+ * result is handed to RestAssured as a byte array and sent as is.
+ * <p>
+ * {@link #compile(String)} rejects templates that are not well-formed JSON. Negative scenarios that need a broken body
+ * use {@link #compileMalformed(String)}, which skips that check.
+ */
+public final class PayloadTemplate {
+
+    private static final JsonFactory factory = new JsonFactory();
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<Buffer> buffer = ThreadLocal.withInitial(Buffer::new);
+
+    private final byte[][] literals;
+    private final String[] names;
+
+    private PayloadTemplate(byte[][] literals, String[] names) {
+        this.literals = literals;
+        this.names = names;
+    }
+
+    /**
+     * Compiles a template that must render to well-formed JSON
+     *
+     * @param template JSON with {@code ${name}} placeholders inside string values
+     * @return compiled template
+     */
+    public static PayloadTemplate compile(String template) {
+        PayloadTemplate compiled = parse(template);
+        compiled.requireWellFormed(template);
+        return compiled;
+    }
+
+    /**
+     * Compiles a template for an intentionally malformed body
+     *
+     * @param template Body with {@code ${name}} placeholders
+     * @return compiled template
+     */
+    public static PayloadTemplate compileMalformed(String template) {
+        return parse(template);
+    }
+
+    /**
+     * Renders the template
+     *
+     * @param values One value per placeholder, in template order; null is written as the text "null"
+     * @return body bytes
+     */
+    public byte[] render(String... values) {
+        if (values.length != names.length) {
+            throw new IllegalArgumentException("Template expects " + Arrays.toString(names) + " but got " + values.length + " values");
+        }
+        Buffer out = buffer.get();
+        out.length = 0;
+        for (int i = 0; i < names.length; i++) {
+            out.write(literals[i]);
+            out.writeEscaped(String.valueOf(values[i]));
+        }
+        out.write(literals[names.length]);
+        return Arrays.copyOf(out.bytes, out.length);
+    }
+
+    private static PayloadTemplate parse(String template) {
+        List<byte[]> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int from = 0;
+        int start;
+        while ((start = template.indexOf("${", from)) >= 0) {
+            int end = template.indexOf('}', start);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at " + start + " in template: " + template);
+            }
+            literals.add(template.substring(from, start).getBytes(StandardCharsets.UTF_8));
+            names.add(template.substring(start + 2, end));
+            from = end + 1;
+        }
+        literals.add(template.substring(from).getBytes(StandardCharsets.UTF_8));
+        return new PayloadTemplate(literals.toArray(byte[][]::new), names.toArray(String[]::new));
+    }
+
+    private void requireWellFormed(String template) {
+        String[] empty = new String[names.length];
+        Arrays.fill(empty, "");
+        try (JsonParser parser = factory.createParser(render(empty))) {
+            while (parser.nextToken() != null) {
+                // reading every token is what validates the document
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Template is not well-formed JSON: " + template, e);
+        }
+    }
+
+    private static final class Buffer {
+        byte[] bytes = new byte[256];
+        int length;
+
+        void write(byte[] data) {
+            ensure(data.length);
+            System.arraycopy(data, 0, bytes, length, data.length);
+            length += data.length;
+        }
+
+        void write(int b) {
+            ensure(1);
+            bytes[length++] = (byte) b;
+        }
+
+        void writeEscaped(String value) {
+            ensure(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    write('\\');
+                    write(c);
+                } else if (c < 0x20) {
+                    writeControl(c);
+                } else if (c < 0x80) {
+                    write(c);
+                } else if (c < 0x800) {
+                    write(0xC0 | (c >> 6));
+                    write(0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    write(0xF0 | (codePoint >> 18));
+                    write(0x80 | ((codePoint >> 12) & 0x3F));
+                    write(0x80 | ((codePoint >> 6) & 0x3F));
+                    write(0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    write('?');
+                } else {
+                    write(0xE0 | (c >> 12));
+                    write(0x80 | ((c >> 6) & 0x3F));
+                    write(0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        private void writeControl(char c) {
+            write('\\');
+            switch (c) {
+                case '\n' -> write('n');
+                case '\r' -> write('r');
+                case '\t' -> write('t');
+                case '\b' -> write('b');
+                case '\f' -> write('f');
+                default -> {
+                    write('u');
+                    write('0');
+                    write('0');
+                    write(HEX[c >> 4]);
+                    write(HEX[c & 0xF]);
+                }
+            }
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.bookstore.util;
+
+import com.example.bookstore.util.ResourceTracker.Account;
+import com.example.bookstore.util.ResourceTracker.Books;
+import com.example.bookstore.util.ResourceTracker.Resource;
+import io.restassured.response.Response;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Background deletion of the accounts and book collections recorded by {@link ResourceTracker}.
+ * <p>
+ * {@link #submit(List)} only enqueues, so cleanup never adds latency to a scenario. bookstore.cleanup.concurrency
+ * workers take up to bookstore.cleanup.batchSize resources off the queue at a time. A batch deletes each account once
+ * and drops collection deletes for accounts deleted in the same batch, since deleting the account already removes its
+ * collection. A 2xx or 404 counts as deleted. A 401 (after dropping the cached token), a 5xx or an I/O error is
+ * retried with exponential backoff up to bookstore.cleanup.maxAttempts times; any other status is given up at once.
+ * {@link #drain(long)} waits for the queue to empty at the end of the run.
+ */
+public class ResourceCleanup {
+
+    private static final Logger logger = LoggerUtil.getLogger(ResourceCleanup.class);
+
+    private static final int CONCURRENCY = ConfigUtil.getInt("bookstore.cleanup.concurrency", 4);
+    private static final int BATCH_SIZE = ConfigUtil.getInt("bookstore.cleanup.batchSize", 20);
+    private static final int MAX_ATTEMPTS = ConfigUtil.getInt("bookstore.cleanup.maxAttempts", 4);
+    private static final long BACKOFF_MS = ConfigUtil.getInt("bookstore.cleanup.backoffMs", 200);
+
+    private record Task(Resource resource, int attempt) {
+    }
+
+    private enum Outcome {
+        DONE, RETRY, FAILED
+    }
+
+    private static final BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+    private static final AtomicInteger pending = new AtomicInteger();
+    private static final AtomicBoolean started = new AtomicBoolean(false);
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+    private static final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(
+            runnable -> daemon(runnable, "cleanup-retry"));
+
+    private static final LongAdder deleted = new LongAdder();
+    private static final LongAdder retried = new LongAdder();
+    private static final LongAdder failed = new LongAdder();
+
+    /**
+     * Queues resources for deletion and returns immediately
+     *
+     * @param resources Resources to delete
+     */
+    public static void submit(List<? extends Resource> resources) {
+        if (resources.isEmpty()) {
+            return;
+        }
+        startWorkers();
+        pending.addAndGet(resources.size());
+        resources.forEach(resource -> queue.add(new Task(resource, 1)));
+    }
+
+    /**
+     * Waits until every queued resource is deleted or has run out of attempts
+     *
+     * @param timeoutMillis Maximum time to wait
+     * @return true if the queue drained in time
+     */
+    public static boolean drain(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (pending) {
+            while (pending.get() > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    logger.warn("Cleanup drain timed out with {} resources left", pending.get());
+                    return false;
+                }
+                try {
+                    pending.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns deleted, retried and failed counters in a log-friendly form
+     *
+     * @return counters
+     */
+    public static String stats() {
+        return String.format("deleted=%d, retried=%d, failed=%d", deleted.sum(), retried.sum(), failed.sum());
+    }
+
+    private static void startWorkers() {
+        if (started.compareAndSet(false, true)) {
+            for (int i = 0; i < CONCURRENCY; i++) {
+                daemon(ResourceCleanup::work, "cleanup-" + threadCounter.incrementAndGet()).start();
+            }
+        }
+    }
+
+    private static void work() {
+        while (true) {
+            List<Task> batch = new ArrayList<>();
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, BATCH_SIZE - 1);
+            process(batch);
+        }
+    }
+
+    private static void process(List<Task> batch) {
+        Map<String, Task> accounts = new LinkedHashMap<>();
+        Map<String, Task> collections = new LinkedHashMap<>();
+        for (Task task : batch) {
+            Map<String, Task> byUserId = (task.resource() instanceof Account) ? accounts : collections;
+            if (byUserId.putIfAbsent(task.resource().userId(), task) != null) {
+                done();
+            }
+        }
+
+        accounts.values().forEach(ResourceCleanup::delete);
+        for (Task task : collections.values()) {
+            if (accounts.containsKey(task.resource().userId())) {
+                done();
+            } else {
+                delete(task);
+            }
+        }
+    }
+
+    private static void delete(Task task) {
+        Outcome outcome;
+        try {
+            outcome = (task.resource() instanceof Account account) ? deleteAccount(account) : deleteBooks((Books) task.resource());
+        } catch (RuntimeException e) {
+            logger.debug("Cleanup of {} failed", task.resource(), e);
+            outcome = Outcome.RETRY;
+        }
+
+        if (outcome == Outcome.DONE) {
+            deleted.increment();
+            done();
+        } else if (outcome == Outcome.FAILED) {
+            failed.increment();
+            done();
+        } else if (task.attempt() < MAX_ATTEMPTS) {
+            retried.increment();
+            long backoff = BACKOFF_MS << (task.attempt() - 1);
+            retryScheduler.schedule(() -> queue.add(new Task(task.resource(), task.attempt() + 1)), backoff, TimeUnit.MILLISECONDS);
+        } else {
+            failed.increment();
+            logger.warn("Giving up on cleanup of {} after {} attempts", task.resource(), task.attempt());
+            done();
+        }
+    }
+
+    private static Outcome deleteAccount(Account account) {
+        Response response = ApiHelper.deleteUser(account.userId(), TokenCache.getToken(account.username(), account.password()));
+        Outcome outcome = outcome(account, response);
+        // On a 401 the cached token may have expired, so the retry fetches a fresh one; after a delete it is useless
+        if (response.getStatusCode() == 401 || outcome == Outcome.DONE) {
+            TokenCache.invalidate(account.username());
+        }
+        return outcome;
+    }
+
+    private static Outcome deleteBooks(Books books) {
+        return outcome(books, ApiHelper.deleteAllBooksForUser(books.token(), books.userId()));
+    }
+
+    /**
+     * Classifies a delete response: gone counts as done, and only statuses that may pass on a later attempt are retried
+     *
+     * @param resource Resource the delete was for
+     * @param response Delete response
+     * @return whether the resource is deleted, worth retrying, or given up
+     */
+    private static Outcome outcome(Resource resource, Response response) {
+        int status = response.getStatusCode();
+        if (status / 100 == 2 || status == 404) {
+            return Outcome.DONE;
+        }
+        if (status == 401 || status >= 500) {
+            return Outcome.RETRY;
+        }
+        logger.warn("Giving up on cleanup of {}: status {} will not change on a retry", resource, status);
+        return Outcome.FAILED;
+    }
+
+    private static void done() {
+        if (pending.decrementAndGet() == 0) {
+            synchronized (pending) {
+                pending.notifyAll();
+            }
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
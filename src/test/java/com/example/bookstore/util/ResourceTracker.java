@@ -0,0 +1,105 @@
+package com.example.bookstore.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the server-side resources a scenario creates through {@link ApiHelper}, so they can be deleted afterwards.
+ * <p>
+ * {@link #begin()} opens a scope on the scenario thread and {@link #end()} hands back everything created in it. Calls
+ * outside a scope (e.g. on {@link UserPool} threads) are not recorded. Accounts owned by the pool are excluded with
+ * {@link #exclude(String)}: the pool resets and reuses them, and deletes them itself when the run ends.
+ */
+public class ResourceTracker {
+
+    /**
+     * Something created on the server that has to be deleted again
+     */
+    public sealed interface Resource permits Account, Books {
+        String userId();
+    }
+
+    /**
+     * A user account; deleting it also deletes its book collection
+     */
+    public record Account(String username, String password, String userId) implements Resource {
+    }
+
+    /**
+     * The book collection of a user account
+     */
+    public record Books(String userId, String token) implements Resource {
+    }
+
+    private static final boolean ENABLED = ConfigUtil.getBoolean("bookstore.cleanup.enabled", true);
+
+    private static final ThreadLocal<List<Resource>> scope = new ThreadLocal<>();
+    private static final Set<String> excludedUserIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Starts recording the resources created on this thread
+     */
+    public static void begin() {
+        if (ENABLED) {
+            scope.set(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Stops recording on this thread
+     *
+     * @return resources created since {@link #begin()}, in creation order
+     */
+    public static List<Resource> end() {
+        List<Resource> resources = scope.get();
+        scope.remove();
+        return (resources == null) ? List.of() : resources;
+    }
+
+    /**
+     * Records a created account
+     *
+     * @param username Username
+     * @param password Password, needed for the token that authorizes the delete
+     * @param userId   User ID
+     */
+    public static void accountCreated(String username, String password, String userId) {
+        record(new Account(username, password, userId));
+    }
+
+    /**
+     * Records books added to a user's collection, unless the scenario created the account itself; deleting the account
+     * removes its books, and a separate delete could run after the account is gone
+     *
+     * @param userId User ID
+     * @param token  Token of that user
+     */
+    public static void booksAdded(String userId, String token) {
+        List<Resource> resources = scope.get();
+        if (resources != null && resources.stream().noneMatch(resource -> userId.equals(resource.userId()))) {
+            record(new Books(userId, token));
+        }
+    }
+
+    /**
+     * Takes an account out of tracking for good, including its book collection
+     *
+     * @param userId User ID
+     */
+    public static void exclude(String userId) {
+        excludedUserIds.add(userId);
+        List<Resource> resources = scope.get();
+        if (resources != null) {
+            resources.removeIf(resource -> userId.equals(resource.userId()));
+        }
+    }
+
+    private static void record(Resource resource) {
+        List<Resource> resources = scope.get();
+        if (resources != null && resource.userId() != null && !excludedUserIds.contains(resource.userId())) {
+            resources.add(resource);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.bookstore.util;
+
+import com.example.bookstore.model.Book;
+import com.example.bookstore.model.BookCollection;
+import com.example.bookstore.model.Token;
+import com.example.bookstore.model.User;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.restassured.response.Response;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes API responses into the typed records of {@code com.example.bookstore.model}.
+ * <p>
+ * Each decode is a single pass of the Jackson streaming parser over the buffered response bytes: only the fields of the
+ * target record are materialized, everything else is skipped without building a tree. A missing field, a JSON null or
+ * a body that is not an object (e.g. an empty 204) leaves the record field null, as {@code jsonPath()} returned null.
+ */
+public class ResponseDecoder {
+
+    @FunctionalInterface
+    private interface Reader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    private static final Map<Class<?>, Reader<?>> readers = Map.of(
+            Book.class, ResponseDecoder::readBook,
+            BookCollection.class, ResponseDecoder::readBookCollection,
+            User.class, ResponseDecoder::readUser,
+            Token.class, ResponseDecoder::readToken);
+
+    /**
+     * Decodes a response body
+     *
+     * @param response Response
+     * @param type     Book, BookCollection, User or Token
+     * @return decoded record, never null
+     */
+    public static <T> T decode(Response response, Class<T> type) {
+        return decode(response.asByteArray(), type);
+    }
+
+    /**
+     * Decodes a JSON body
+     *
+     * @param body JSON bytes
+     * @param type Book, BookCollection, User or Token
+     * @return decoded record, never null
+     */
+    public static <T> T decode(byte[] body, Class<T> type) {
+        Reader<?> reader = readers.get(type);
+        if (reader == null) {
+            throw new IllegalArgumentException("No decoder for " + type.getName());
+        }
+        try (JsonParser parser = factory.createParser(body)) {
+            parser.nextToken();
+            return type.cast(reader.read(parser));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode " + type.getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Reads one top-level scalar field, stopping as soon as it is found
+     *
+     * @param response Response
+     * @param name     Field name
+     * @return field value as text, or null when absent or null
+     */
+    public static String field(Response response, String name) {
+        try (JsonParser parser = factory.createParser(response.asByteArray())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                boolean match = name.equals(parser.currentName());
+                parser.nextToken();
+                if (match) {
+                    return parser.currentToken().isScalarValue() ? parser.getValueAsString() : null;
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read field " + name, e);
+        }
+    }
+
+    private static Book readBook(JsonParser parser) throws IOException {
+        String isbn = null, title = null, subTitle = null, author = null, publishDate = null, publisher = null;
+        String description = null, website = null;
+        Integer pages = null;
+        if (startObject(parser)) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                switch (name) {
+                    case "isbn" -> isbn = text(parser);
+                    case "title" -> title = text(parser);
+                    case "subTitle" -> subTitle = text(parser);
+                    case "author" -> author = text(parser);
+                    case "publish_date" -> publishDate = text(parser);
+                    case "publisher" -> publisher = text(parser);
+                    case "pages" -> pages = parser.currentToken().isNumeric() ? parser.getIntValue() : null;
+                    case "description" -> description = text(parser);
+                    case "website" -> website = text(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return new Book(isbn, title, subTitle, author, publishDate, publisher, pages, description, website);
+    }
+
+    private static BookCollection readBookCollection(JsonParser parser) throws IOException {
+        List<Book> books = null;
+        if (startObject(parser)) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                if (name.equals("books")) {
+                    books = readBooks(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new BookCollection(books);
+    }
+
+    private static User readUser(JsonParser parser) throws IOException {
+        String userId = null, username = null;
+        List<Book> books = null;
+        if (startObject(parser)) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                switch (name) {
+                    case "userID", "userId" -> userId = text(parser);
+                    case "username" -> username = text(parser);
+                    case "books" -> books = readBooks(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return new User(userId, username, books);
+    }
+
+    private static Token readToken(JsonParser parser) throws IOException {
+        String token = null, expires = null, status = null, result = null;
+        if (startObject(parser)) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                switch (name) {
+                    case "token" -> token = text(parser);
+                    case "expires" -> expires = text(parser);
+                    case "status" -> status = text(parser);
+                    case "result" -> result = text(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return new Token(token, expires, status, result);
+    }
+
+    private static List<Book> readBooks(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        List<Book> books = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            books.add(readBook(parser));
+        }
+        return books;
+    }
+
+    // Skips a non-object value so the caller's parser position stays consistent
+    private static boolean startObject(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            return true;
+        }
+        if (parser.currentToken() != null) {
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private static String text(JsonParser parser) throws IOException {
+        return parser.currentToken().isScalarValue() ? parser.getValueAsString() : skip(parser);
+    }
+
+    private static String skip(JsonParser parser) throws IOException {
+        parser.skipChildren();
+        return null;
+    }
+}
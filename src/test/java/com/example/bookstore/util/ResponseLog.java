@@ -0,0 +1,98 @@
+package com.example.bookstore.util;
+
+import io.restassured.response.Response;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+/**
+ * Lazy, size-capped rendering of response bodies for log statements and assertion messages.
+ * <p>
+ * {@link #body(Response)} returns a tiny handle whose {@code toString()} is only invoked by SLF4J when the log event is
+ * actually emitted, so a disabled DEBUG statement never touches the body. When rendered, at most
+ * bookstore.log.maxBodyBytes bytes are decoded straight from the response's buffered bytes, in the charset the response
+ * declares; the full body is never copied into a String.
+ */
+public class ResponseLog {
+
+    private static final int MAX_BODY_BYTES = ConfigUtil.getInt("bookstore.log.maxBodyBytes", 2048);
+
+    /**
+     * Wraps a response body for a log parameter
+     *
+     * @param response Response
+     * @return object rendering the capped body on {@code toString()}
+     */
+    public static Object body(Response response) {
+        return new Object() {
+            @Override
+            public String toString() {
+                return render(response);
+            }
+        };
+    }
+
+    /**
+     * Supplies the capped body for a JUnit assertion message, rendered only if the assertion fails
+     *
+     * @param response Response
+     * @return message supplier
+     */
+    public static Supplier<String> message(Response response) {
+        return () -> render(response);
+    }
+
+    /**
+     * Renders at most bookstore.log.maxBodyBytes of the body in the charset declared by the Content-Type (UTF-8 when
+     * none is declared), cut back to a whole character
+     *
+     * @param response Response
+     * @return capped body
+     */
+    public static String render(Response response) {
+        if (response == null) {
+            return "<no response>";
+        }
+        byte[] bytes = response.asByteArray();
+        Charset charset = charset(response);
+        if (bytes.length <= MAX_BODY_BYTES) {
+            return new String(bytes, charset);
+        }
+
+        if (charset.equals(StandardCharsets.UTF_8)) {
+            // Back up over continuation bytes (10xxxxxx) to the start of the character the cap falls into
+            int end = MAX_BODY_BYTES;
+            while (end > 0 && (bytes[end] & 0xC0) == 0x80) {
+                end--;
+            }
+            return new String(bytes, 0, end, charset) + "... [" + (bytes.length - end) + " more bytes]";
+        }
+
+        // Any other charset: decode without end of input, so a trailing partial character is left unconsumed
+        ByteBuffer in = ByteBuffer.wrap(bytes, 0, MAX_BODY_BYTES);
+        CharBuffer out = CharBuffer.allocate(MAX_BODY_BYTES);
+        charset.newDecoder()
+               .onMalformedInput(CodingErrorAction.REPLACE)
+               .onUnmappableCharacter(CodingErrorAction.REPLACE)
+               .decode(in, out, false);
+        return out.flip() + "... [" + (bytes.length - in.position()) + " more bytes]";
+    }
+
+    private static Charset charset(Response response) {
+        String contentType = response.getContentType();
+        int index = (contentType == null) ? -1 : contentType.toLowerCase().indexOf("charset=");
+        if (index >= 0) {
+            String name = contentType.substring(index + "charset=".length()).split(";")[0].trim().replace("\"", "");
+            try {
+                return Charset.forName(name);
+            } catch (IllegalArgumentException e) {
+                return StandardCharsets.UTF_8;
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+}
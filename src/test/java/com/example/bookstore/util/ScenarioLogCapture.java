@@ -0,0 +1,153 @@
+package com.example.bookstore.util;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-scenario logs and the scenario MDC.
+ * <p>
+ * {@link #start(String, String, String)} puts the scenario name, id and location into the MDC so every log line of the
+ * scenario thread carries them, together with a run number that tells apart concurrent runs of the same scenario (as
+ * in a load run). With bookstore.log.perScenario=true a single appender, attached once, also collects each scenario's
+ * lines in memory, keyed by the scenario id in the MDC. Logging stays off the disk: an event costs one map lookup and
+ * one formatted line, whatever the number of parallel scenarios. {@link #finish(boolean)} writes the log of a failed
+ * scenario to bookstore.log.scenarioDir and returns it for the report; the buffer of a passed one is dropped. A
+ * scenario keeps at most bookstore.log.perScenarioMaxBytes characters; later lines are counted, not kept.
+ */
+public class ScenarioLogCapture {
+
+    private static final Logger logger = LoggerUtil.getLogger(ScenarioLogCapture.class);
+
+    private static final boolean ENABLED = ConfigUtil.getBoolean("bookstore.log.perScenario", false);
+    private static final Path DIR = Path.of(ConfigUtil.getString("bookstore.log.scenarioDir", "target/scenario-logs"));
+    private static final int MAX_CHARS = ConfigUtil.getInt("bookstore.log.perScenarioMaxBytes", 1024 * 1024);
+    private static final String PATTERN = "%d{HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n";
+
+    private static final Map<String, Buffer> buffers = new ConcurrentHashMap<>();
+    private static final ThreadLocal<String> currentScenario = new ThreadLocal<>();
+    private static final AtomicLong runs = new AtomicLong();
+    private static volatile boolean attached;
+
+    private static final class Buffer {
+        private final StringBuilder text = new StringBuilder();
+        private long droppedLines;
+
+        synchronized void append(String line) {
+            if (text.length() + line.length() <= MAX_CHARS) {
+                text.append(line);
+            } else {
+                droppedLines++;
+            }
+        }
+
+        synchronized String contents() {
+            return (droppedLines == 0) ? text.toString() : text + "... [" + droppedLines + " more lines dropped]" + System.lineSeparator();
+        }
+    }
+
+    /**
+     * Collects the events of scenarios that are being captured. Unsynchronized, so parallel scenarios don't queue
+     * behind one appender lock; each scenario's buffer is locked on its own.
+     */
+    private static final class BufferingAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+        private final PatternLayout layout = new PatternLayout();
+
+        @Override
+        public void start() {
+            layout.setContext(getContext());
+            layout.setPattern(PATTERN);
+            layout.start();
+            super.start();
+        }
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            String scenarioId = event.getMDCPropertyMap().get("scenarioId");
+            Buffer buffer = (scenarioId == null) ? null : buffers.get(scenarioId);
+            if (buffer != null) {
+                buffer.append(layout.doLayout(event));
+            }
+        }
+    }
+
+    /**
+     * Sets the scenario MDC and, when enabled, starts collecting the scenario's log
+     *
+     * @param scenarioId       Scenario id
+     * @param scenarioName     Scenario name
+     * @param scenarioLocation Feature file name and line of the scenario, e.g. book_store.feature:17
+     */
+    public static void start(String scenarioId, String scenarioName, String scenarioLocation) {
+        MDC.put("scenarioId", scenarioId);
+        MDC.put("scenario", scenarioName);
+        MDC.put("scenarioLocation", scenarioLocation);
+        MDC.put("scenarioRun", Long.toString(runs.incrementAndGet()));
+        if (!ENABLED) {
+            return;
+        }
+        attach();
+        buffers.put(scenarioId, new Buffer());
+        currentScenario.set(scenarioId);
+    }
+
+    /**
+     * Stops collecting the scenario's log and clears the MDC
+     *
+     * @param failed Whether the scenario failed
+     * @return the scenario log if it failed and capture is enabled
+     */
+    public static Optional<byte[]> finish(boolean failed) {
+        MDC.remove("scenarioId");
+        MDC.remove("scenario");
+        MDC.remove("scenarioLocation");
+        MDC.remove("scenarioRun");
+
+        String scenarioId = currentScenario.get();
+        currentScenario.remove();
+        Buffer buffer = (scenarioId == null) ? null : buffers.remove(scenarioId);
+        if (buffer == null || !failed) {
+            return Optional.empty();
+        }
+
+        byte[] log = buffer.contents().getBytes(StandardCharsets.UTF_8);
+        Path file = DIR.resolve(scenarioId.replaceAll("[^A-Za-z0-9._-]", "_") + ".log");
+        try {
+            Files.createDirectories(DIR);
+            Files.write(file, log);
+        } catch (IOException e) {
+            logger.warn("Failed to write scenario log {}", file, e);
+        }
+        return Optional.of(log);
+    }
+
+    private static void attach() {
+        if (attached) {
+            return;
+        }
+        synchronized (ScenarioLogCapture.class) {
+            if (!attached) {
+                LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+                BufferingAppender appender = new BufferingAppender();
+                appender.setContext(context);
+                appender.setName("SCENARIO_BUFFER");
+                appender.start();
+                context.getLogger(Logger.ROOT_LOGGER_NAME).addAppender(appender);
+                attached = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.bookstore.util;
+
+/**
+ * A registered Bookstore account together with a valid token
+ *
+ * @param username Username
+ * @param password Password
+ * @param userId   User ID returned on creation
+ * @param token    Bearer token
+ */
+public record TestUser(String username, String password, String userId, String token) {
+
+    /**
+     * Returns a copy of this account with another token
+     *
+     * @param newToken Token
+     * @return TestUser
+     */
+    public TestUser withToken(String newToken) {
+        return newToken.equals(token) ? this : new TestUser(username, password, userId, newToken);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.bookstore.util;
+
+import com.example.bookstore.model.Token;
+import io.restassured.response.Response;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Expiry-aware cache in front of {@link ApiHelper#generateToken(String, String)}, keyed by username.
+ * <p>
+ * Entries are refreshed once they get within the refresh margin of the {@code expires} time returned by the
+ * GenerateToken endpoint. Concurrent lookups for the same username share a single in-flight request; those callers
+ * are counted as joins rather than hits, so the hit counter only covers lookups answered without waiting.
+ */
+public class TokenCache {
+
+    private static final Logger logger = LoggerUtil.getLogger(TokenCache.class);
+
+    private static final Duration REFRESH_MARGIN = Duration.ofSeconds(ConfigUtil.getInt("bookstore.tokenCache.refreshMarginSeconds", 60));
+    private static final Duration DEFAULT_TTL = Duration.ofSeconds(ConfigUtil.getInt("bookstore.tokenCache.defaultTtlSeconds", 300));
+
+    private static final Map<String, CachedToken> cache = new ConcurrentHashMap<>();
+    private static final Map<String, CompletableFuture<CachedToken>> inFlight = new ConcurrentHashMap<>();
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong joins = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong refreshes = new AtomicLong();
+
+    private record CachedToken(String token, Instant refreshAt) {
+    }
+
+    /**
+     * Returns a valid token for the user, generating a new one only when none is cached or the cached one is about
+     * to expire
+     *
+     * @param username Username
+     * @param password Password
+     * @return Token
+     */
+    public static String getToken(String username, String password) {
+        CachedToken cached = cache.get(username);
+        if (isFresh(cached)) {
+            hits.incrementAndGet();
+            return cached.token();
+        }
+
+        CompletableFuture<CachedToken> flight = new CompletableFuture<>();
+        CompletableFuture<CachedToken> existing = inFlight.putIfAbsent(username, flight);
+        if (existing != null) {
+            joins.incrementAndGet();
+            return join(existing).token();
+        }
+
+        try {
+            // Another fetch may have finished between the cache read above and claiming the flight
+            cached = cache.get(username);
+            if (isFresh(cached)) {
+                hits.incrementAndGet();
+                flight.complete(cached);
+                return cached.token();
+            }
+
+            (cached == null ? misses : refreshes).incrementAndGet();
+            CachedToken fresh = fetch(username, password);
+            // Publish before the flight is removed, so no caller can find neither and start a duplicate fetch
+            cache.put(username, fresh);
+            flight.complete(fresh);
+            return fresh.token();
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(username, flight);
+        }
+    }
+
+    /**
+     * Drops the cached token for the user so the next lookup generates a new one
+     *
+     * @param username Username
+     */
+    public static void invalidate(String username) {
+        if (username != null) {
+            cache.remove(username);
+        }
+    }
+
+    /**
+     * Returns hit, join, miss and refresh counters in a log-friendly form. A join is a lookup that waited for another
+     * thread's in-flight fetch.
+     *
+     * @return counters
+     */
+    public static String stats() {
+        return String.format("hits=%d, joins=%d, misses=%d, refreshes=%d", hits.get(), joins.get(), misses.get(), refreshes.get());
+    }
+
+    private static boolean isFresh(CachedToken cached) {
+        return cached != null && Instant.now().isBefore(cached.refreshAt());
+    }
+
+    private static CachedToken fetch(String username, String password) {
+        Response response = ApiHelper.generateToken(username, password);
+        Token token = ResponseDecoder.decode(response, Token.class);
+        if (response.getStatusCode() != 200 || token.token() == null) {
+            throw new IllegalStateException("Failed to generate token for " + username + ". Status: " + response.getStatusCode());
+        }
+        return new CachedToken(token.token(), parseExpiry(token.expires()).minus(REFRESH_MARGIN));
+    }
+
+    private static Instant parseExpiry(String expires) {
+        if (expires != null) {
+            try {
+                return Instant.parse(expires);
+            } catch (DateTimeParseException e) {
+                logger.warn("Unparseable token expiry '{}', falling back to {}", expires, DEFAULT_TTL);
+            }
+        }
+        return Instant.now().plus(DEFAULT_TTL);
+    }
+
+    private static CachedToken join(CompletableFuture<CachedToken> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            throw (e.getCause() instanceof RuntimeException cause) ? cause : e;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.bookstore.util;
+
+import io.restassured.response.Response;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of ready-to-use accounts with valid tokens.
+ * <p>
+ * The pool is pre-filled in the background once {@link #start()} is called. Scenarios lease an account instead of
+ * creating one, and hand it back when they finish; the account's book collection is then emptied in the background and
+ * the account goes back into the pool. Tokens come from {@link TokenCache}, so a pooled account is re-authenticated
+ * only when its token is close to expiry. If no account is ready, the caller provisions one inline, so a lease never
+ * waits on the background workers. The pool never holds more than bookstore.userPool.size accounts: an account handed
+ * back to a full pool is deleted instead of kept. Pooled accounts are kept out of {@link ResourceTracker};
+ * {@link #close(long)} hands them to {@link ResourceCleanup} when the run ends. With bookstore.userPool.enabled=false
+ * every lease provisions a new account, which {@link ResourceTracker} deletes when the scenario ends.
+ */
+public class UserPool {
+
+    private static final Logger logger = LoggerUtil.getLogger(UserPool.class);
+
+    private static final boolean ENABLED = ConfigUtil.getBoolean("bookstore.userPool.enabled", true);
+    private static final int SIZE = ConfigUtil.getInt("bookstore.userPool.size", 8);
+    private static final int REFILL_THREADS = ConfigUtil.getInt("bookstore.userPool.refillThreads", 4);
+
+    // Bounded, so offer() refuses accounts beyond the configured size
+    private static final BlockingQueue<TestUser> ready = new LinkedBlockingQueue<>(Math.max(1, SIZE));
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+    private static final ExecutorService refillExecutor = ENABLED ? createRefillExecutor() : null;
+    private static final AtomicBoolean started = new AtomicBoolean(false);
+
+    /**
+     * Starts filling the pool in the background. Safe to call more than once.
+     */
+    public static void start() {
+        if (ENABLED && started.compareAndSet(false, true)) {
+            logger.info("Pre-provisioning {} pooled users with {} threads", SIZE, REFILL_THREADS);
+            for (int i = 0; i < SIZE; i++) {
+                refillExecutor.submit(UserPool::provisionIntoPool);
+            }
+        }
+    }
+
+    /**
+     * Leases an account with a valid token and an empty book collection
+     *
+     * @return leased account; must be handed back with {@link #release(TestUser)}
+     */
+    public static TestUser lease() {
+        start();
+        TestUser user = ENABLED ? ready.poll() : null;
+        if (user == null) {
+            user = provision();
+        } else {
+            user = user.withToken(TokenCache.getToken(user.username(), user.password()));
+        }
+        logger.debug("Leased user {} ({} ready)", user.username(), ready.size());
+        return user;
+    }
+
+    /**
+     * Hands a leased account back. Its book collection is reset in the background before it can be leased again; if
+     * the reset fails the account is dropped and replaced with a freshly provisioned one. Accounts that were provisioned
+     * inline while the pool was empty are deleted once the pool is full again.
+     *
+     * @param user Account returned by {@link #lease()}
+     */
+    public static void release(TestUser user) {
+        if (!ENABLED || user == null) {
+            return;
+        }
+        try {
+            refillExecutor.submit(() -> {
+                if (resetCollection(user)) {
+                    offerOrDelete(user);
+                } else {
+                    ResourceCleanup.submit(List.of(account(user)));
+                    provisionIntoPool();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The pool is closed; the account is not coming back
+            ResourceCleanup.submit(List.of(account(user)));
+        }
+    }
+
+    /**
+     * Stops refilling and hands every pooled account to {@link ResourceCleanup} for deletion
+     *
+     * @param timeoutMillis How long to wait for running resets and provisioning to finish
+     */
+    public static void close(long timeoutMillis) {
+        if (!ENABLED) {
+            return;
+        }
+        refillExecutor.shutdown();
+        try {
+            if (!refillExecutor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                logger.warn("User pool workers still busy after {} ms", timeoutMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<TestUser> users = new ArrayList<>();
+        ready.drainTo(users);
+        ResourceCleanup.submit(users.stream().map(UserPool::account).toList());
+    }
+
+    private static boolean resetCollection(TestUser user) {
+        try {
+            Response response = ApiHelper.deleteAllBooksForUser(user.token(), user.userId());
+            if (response.getStatusCode() == 401) {
+                TokenCache.invalidate(user.username());
+                response = ApiHelper.deleteAllBooksForUser(TokenCache.getToken(user.username(), user.password()), user.userId());
+            }
+            if (response.getStatusCode() == 204) {
+                return true;
+            }
+            logger.warn("Dropping pooled user {}: collection reset returned {}", user.username(), response.getStatusCode());
+        } catch (RuntimeException e) {
+            logger.warn("Dropping pooled user {}: collection reset failed", user.username(), e);
+        }
+        return false;
+    }
+
+    private static void provisionIntoPool() {
+        if (ready.remainingCapacity() == 0) {
+            return;
+        }
+        try {
+            offerOrDelete(provision());
+        } catch (RuntimeException e) {
+            logger.warn("Failed to provision pooled user", e);
+        }
+    }
+
+    private static void offerOrDelete(TestUser user) {
+        if (!ready.offer(user)) {
+            logger.debug("Pool is full, deleting user {}", user.username());
+            ResourceCleanup.submit(List.of(account(user)));
+        }
+    }
+
+    private static TestUser provision() {
+        String username = UserUtil.generateUniqueUsername();
+        String password = UserUtil.generateDefaultPassword();
+
+        Response response = ApiHelper.createUser(username, password);
+        if (response.getStatusCode() != 201) {
+            throw new IllegalStateException("Failed to create user. Status: " + response.getStatusCode());
+        }
+        String userId = ResponseDecoder.field(response, "userID");
+        if (ENABLED) {
+            // The pool owns the account from here on; without a pool it stays tracked and is deleted with the scenario
+            ResourceTracker.exclude(userId);
+        }
+
+        return new TestUser(username, password, userId, TokenCache.getToken(username, password));
+    }
+
+    private static ResourceTracker.Account account(TestUser user) {
+        return new ResourceTracker.Account(user.username(), user.password(), user.userId());
+    }
+
+    private static ExecutorService createRefillExecutor() {
+        return Executors.newFixedThreadPool(REFILL_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "user-pool-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.bookstore.watch;
+
+import com.example.bookstore.util.ConfigUtil;
+import com.example.bookstore.util.LaunchUtil;
+import com.example.bookstore.util.LoggerUtil;
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dumps a class-data-sharing (CDS) archive of the classes a run loads, so a cold JVM in CI starts faster.
+ * <p>
+ * A training run of {@link WatchRunner} with bookstore.watch.once=true records the loaded classes. A second JVM then
+ * dumps them into bookstore.cds.archive. JDK 17 only archives classes from JAR files and refuses to dump while a
+ * non-empty class directory is on the class path, so the archive covers the JDK and the dependency JARs (RestAssured,
+ * Groovy, Cucumber, Jackson), which are most of the startup cost. The project's class directories are appended after
+ * the JARs at run time, which keeps the archived class path a valid prefix.
+ * <p>
+ * The JVM options for using the archive are written next to it as a java argument file:
+ * {@code java @.cache/cds/java.args -Dbookstore.watch.once=true com.example.bookstore.watch.WatchRunner}. A stale
+ * archive (different JDK or dependency JARs) is ignored by the JVM rather than failing the run. Run it with
+ * {@code mvn test-compile exec:java -Pcds}.
+ */
+public class CdsArchive {
+
+    private static final Logger logger = LoggerUtil.getLogger(CdsArchive.class);
+
+    private static final Path ARCHIVE = Path.of(ConfigUtil.getString("bookstore.cds.archive", ".cache/cds/bookstore.jsa")).toAbsolutePath();
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path classList = ARCHIVE.resolveSibling("classes.lst");
+        Path argFile = ARCHIVE.resolveSibling("java.args");
+        Files.createDirectories(ARCHIVE.getParent());
+
+        List<String> jars = new ArrayList<>();
+        List<String> directories = new ArrayList<>();
+        for (String entry : GlueReloader.classpath(CdsArchive.class.getClassLoader()).split(File.pathSeparator)) {
+            (entry.endsWith(".jar") ? jars : directories).add(entry);
+        }
+        String jarPath = String.join(File.pathSeparator, jars);
+        String runPath = String.join(File.pathSeparator, jars) + File.pathSeparator + String.join(File.pathSeparator, directories);
+
+        List<String> training = new ArrayList<>(List.of(java(), "-XX:DumpLoadedClassList=" + classList, "-cp", runPath));
+        training.addAll(forwardedProperties());
+        training.addAll(List.of("-Dbookstore.watch.once=true", WatchRunner.class.getName()));
+        logger.info("Training run to record the loaded classes");
+        if (exec(training) != 0) {
+            logger.warn("The training run had failures; the class list is still usable");
+        }
+
+        Files.deleteIfExists(ARCHIVE);
+        int dumped = exec(List.of(java(), "-Xshare:dump", "-Xlog:cds=off", "-XX:SharedClassListFile=" + classList,
+                "-XX:SharedArchiveFile=" + ARCHIVE, "-cp", jarPath));
+        if (dumped != 0 || !Files.exists(ARCHIVE)) {
+            logger.error("Dumping the CDS archive failed with exit status {}", dumped);
+            if (LaunchUtil.launchedDirectly(CdsArchive.class)) {
+                System.exit(1);
+            }
+            // Under exec:java this JVM is Maven's; fail the goal instead of exiting, so Maven still reports
+            throw new IllegalStateException("Dumping the CDS archive failed with exit status " + dumped);
+        }
+
+        Files.write(argFile, List.of(quote("-XX:SharedArchiveFile=" + ARCHIVE), "-Xshare:auto", "-cp", quote(runPath)));
+        logger.info("CDS archive written to {} ({} MB); start with: java @{} com.example.bookstore.watch.WatchRunner", ARCHIVE,
+                Files.size(ARCHIVE) >> 20, argFile);
+    }
+
+    private static List<String> forwardedProperties() {
+        List<String> properties = new ArrayList<>();
+        for (Map.Entry<Object, Object> property : System.getProperties().entrySet()) {
+            String key = property.getKey().toString();
+            if (key.startsWith("bookstore.") || key.startsWith("cucumber.")) {
+                properties.add("-D" + key + "=" + property.getValue());
+            }
+        }
+        return properties;
+    }
+
+    private static int exec(List<String> command) throws IOException, InterruptedException {
+        return new ProcessBuilder(command).inheritIO().start().waitFor();
+    }
+
+    private static String java() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    // Argument files treat backslashes in quoted values as escapes
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\") + "\"";
+    }
+}
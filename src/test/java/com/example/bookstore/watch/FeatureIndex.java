@@ -0,0 +1,160 @@
+package com.example.bookstore.watch;
+
+import com.example.bookstore.util.LoggerUtil;
+import io.cucumber.gherkin.GherkinParser;
+import io.cucumber.messages.types.Envelope;
+import io.cucumber.messages.types.Examples;
+import io.cucumber.messages.types.FeatureChild;
+import io.cucumber.messages.types.GherkinDocument;
+import io.cucumber.messages.types.Pickle;
+import io.cucumber.messages.types.PickleStep;
+import io.cucumber.messages.types.PickleTag;
+import io.cucumber.messages.types.RuleChild;
+import io.cucumber.messages.types.Scenario;
+import io.cucumber.messages.types.TableRow;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * The scenarios of every watched feature file, so a change can be narrowed down to the scenarios it touched.
+ * <p>
+ * Each scenario (or Scenario Outline example row) is fingerprinted by its name, tags and expanded steps, including
+ * Background steps, doc strings and data tables. When a file changes, only scenarios whose fingerprint did not exist
+ * before are reported, so moving a scenario or editing a comment runs nothing.
+ */
+final class FeatureIndex {
+
+    /**
+     * One runnable scenario
+     *
+     * @param feature     Feature file
+     * @param line        Line of the scenario, or of the example row for outlines
+     * @param name        Scenario name
+     * @param steps       Expanded step texts
+     * @param fingerprint Name, tags and steps in one string
+     */
+    record ScenarioRef(Path feature, long line, String name, List<String> steps, String fingerprint) {
+    }
+
+    private static final Logger logger = LoggerUtil.getLogger(FeatureIndex.class);
+
+    private static final GherkinParser parser = GherkinParser.builder().includeSource(false).build();
+
+    private final Map<Path, List<ScenarioRef>> features = new HashMap<>();
+
+    /**
+     * Indexes every feature file under a directory
+     *
+     * @param directory Feature directory
+     * @throws IOException if the directory cannot be listed
+     */
+    void scan(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.filter(FeatureIndex::isFeature).forEach(this::update);
+        }
+        logger.info("Indexed {} scenarios in {} feature files", all().size(), features.size());
+    }
+
+    /**
+     * Re-reads a feature file
+     *
+     * @param feature Feature file; a file that no longer exists is dropped from the index
+     * @return scenarios that are new or changed since the last read
+     */
+    List<ScenarioRef> update(Path feature) {
+        Path key = feature.toAbsolutePath().normalize();
+        if (!Files.exists(key)) {
+            features.remove(key);
+            return List.of();
+        }
+        List<ScenarioRef> scenarios;
+        try {
+            scenarios = parse(key);
+        } catch (IOException | IllegalStateException e) {
+            logger.warn("Cannot parse {}: {}", feature, e.getMessage());
+            return List.of();
+        }
+
+        List<String> known = new ArrayList<>(features.getOrDefault(key, List.of()).stream().map(ScenarioRef::fingerprint).toList());
+        features.put(key, scenarios);
+        List<ScenarioRef> changed = new ArrayList<>();
+        for (ScenarioRef scenario : scenarios) {
+            // remove() so that two identical scenarios only count as known once
+            if (!known.remove(scenario.fingerprint())) {
+                changed.add(scenario);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns every indexed scenario
+     *
+     * @return scenarios in no particular order
+     */
+    List<ScenarioRef> all() {
+        return features.values().stream().flatMap(Collection::stream).toList();
+    }
+
+    static boolean isFeature(Path path) {
+        return path.getFileName().toString().endsWith(".feature");
+    }
+
+    private static List<ScenarioRef> parse(Path feature) throws IOException {
+        Map<String, Long> lines = new HashMap<>();
+        List<Pickle> pickles = new ArrayList<>();
+        try (Stream<Envelope> envelopes = parser.parse(feature)) {
+            for (Envelope envelope : (Iterable<Envelope>) envelopes::iterator) {
+                envelope.getParseError().ifPresent(error -> {
+                    throw new IllegalStateException(error.getMessage());
+                });
+                envelope.getGherkinDocument().ifPresent(document -> collectLines(document, lines));
+                envelope.getPickle().ifPresent(pickles::add);
+            }
+        }
+
+        List<ScenarioRef> scenarios = new ArrayList<>();
+        for (Pickle pickle : pickles) {
+            // The last AST node is the example row for outlines and the scenario itself otherwise
+            String nodeId = pickle.getAstNodeIds().get(pickle.getAstNodeIds().size() - 1);
+            List<String> steps = pickle.getSteps().stream().map(PickleStep::getText).toList();
+            StringBuilder fingerprint = new StringBuilder(pickle.getName());
+            pickle.getTags().stream().map(PickleTag::getName).forEach(tag -> fingerprint.append('\n').append(tag));
+            for (PickleStep step : pickle.getSteps()) {
+                fingerprint.append('\n').append(step.getText());
+                step.getArgument().ifPresent(argument -> fingerprint.append('\n').append(argument));
+            }
+            scenarios.add(new ScenarioRef(feature, lines.getOrDefault(nodeId, 0L), pickle.getName(), steps, fingerprint.toString()));
+        }
+        return scenarios;
+    }
+
+    private static void collectLines(GherkinDocument document, Map<String, Long> lines) {
+        document.getFeature().ifPresent(feature -> {
+            for (FeatureChild child : feature.getChildren()) {
+                child.getScenario().ifPresent(scenario -> collectLines(scenario, lines));
+                child.getRule().ifPresent(rule -> rule.getChildren().stream().map(RuleChild::getScenario)
+                                                      .flatMap(Optional::stream).forEach(scenario -> collectLines(scenario, lines)));
+            }
+        });
+    }
+
+    private static void collectLines(Scenario scenario, Map<String, Long> lines) {
+        lines.put(scenario.getId(), scenario.getLocation().getLine());
+        for (Examples examples : scenario.getExamples()) {
+            for (TableRow row : examples.getTableBody()) {
+                lines.put(row.getId(), row.getLocation().getLine());
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.bookstore.watch;
+
+import com.example.bookstore.util.LoggerUtil;
+import io.cucumber.cucumberexpressions.Expression;
+import io.cucumber.cucumberexpressions.ExpressionFactory;
+import io.cucumber.cucumberexpressions.ParameterTypeRegistry;
+import io.cucumber.java.StepDefinitionAnnotation;
+import org.slf4j.Logger;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Recompiles the step definition package and loads it into a fresh class loader, so changed step classes take effect
+ * without restarting the JVM.
+ * <p>
+ * Only {@value #GLUE} is reloaded. Everything else (ApiClient and its warm connection pool, the token cache, the user
+ * pool) stays in the parent class loader and keeps its state. Changes to those classes need a restart.
+ */
+final class GlueReloader {
+
+    static final String GLUE = "com.example.bookstore.stepdefs";
+
+    private static final Logger logger = LoggerUtil.getLogger(GlueReloader.class);
+
+    private static final ExpressionFactory expressions = new ExpressionFactory(new ParameterTypeRegistry(Locale.ENGLISH));
+
+    private final Path sourceDirectory;
+    private final Path outputRoot;
+    private final ClassLoader parent;
+    private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    private ClassLoader current;
+    private int generation;
+
+    /**
+     * @param sourceRoot Test source root, e.g. src/test/java
+     * @param outputRoot Directory the recompiled generations are written to
+     * @param parent     Class loader holding the rest of the test classes
+     */
+    GlueReloader(Path sourceRoot, Path outputRoot, ClassLoader parent) {
+        this.sourceDirectory = sourceRoot.resolve(GLUE.replace('.', File.separatorChar));
+        this.outputRoot = outputRoot;
+        this.parent = parent;
+        this.current = parent;
+    }
+
+    /**
+     * Returns the class loader the next run should load its glue from
+     *
+     * @return current class loader
+     */
+    ClassLoader classLoader() {
+        return current;
+    }
+
+    /**
+     * Returns whether a source file belongs to the reloadable glue package
+     *
+     * @param source Java source file
+     * @return true for files directly in the step definition package
+     */
+    boolean isGlue(Path source) {
+        return source.toAbsolutePath().normalize().getParent().equals(sourceDirectory.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Recompiles the glue package and switches to the new classes. On a compile error the previous classes stay in use.
+     *
+     * @return true if the new classes are in use
+     */
+    boolean reload() {
+        if (compiler == null) {
+            logger.warn("No Java compiler available (running on a JRE?), step classes cannot be reloaded");
+            return false;
+        }
+        List<File> sources;
+        try (Stream<Path> files = Files.list(sourceDirectory)) {
+            sources = files.filter(file -> file.toString().endsWith(".java")).map(Path::toFile).toList();
+        } catch (IOException e) {
+            logger.warn("Cannot list {}", sourceDirectory, e);
+            return false;
+        }
+
+        Path output = outputRoot.resolve("generation-" + (generation + 1));
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8)) {
+            Files.createDirectories(output);
+            List<String> options = List.of("-d", output.toString(), "-classpath", classpath(parent), "-proc:none", "-encoding", "UTF-8");
+            boolean compiled = compiler.getTask(null, fileManager, diagnostics, options, null,
+                    fileManager.getJavaFileObjectsFromFiles(sources)).call();
+            if (!compiled) {
+                for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                    if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                        logger.error("{}:{}: {}", diagnostic.getSource() == null ? "?" : diagnostic.getSource().getName(),
+                                diagnostic.getLineNumber(), diagnostic.getMessage(Locale.ROOT));
+                    }
+                }
+                return false;
+            }
+            current = new GlueClassLoader(output.toUri().toURL(), parent);
+            generation++;
+            logger.info("Reloaded step definitions (generation {})", generation);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Cannot compile {}", sourceDirectory, e);
+            return false;
+        }
+    }
+
+    /**
+     * Returns the step patterns declared by a glue class in a class loader
+     *
+     * @param classLoader Class loader to look the class up in
+     * @param simpleName  Class name without package
+     * @return step expressions; empty when the class does not exist or declares no steps
+     */
+    static List<Expression> stepExpressions(ClassLoader classLoader, String simpleName) {
+        Class<?> type;
+        try {
+            type = Class.forName(GLUE + "." + simpleName, false, classLoader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return List.of();
+        }
+        List<Expression> steps = new ArrayList<>();
+        for (Method method : type.getDeclaredMethods()) {
+            for (Annotation annotation : method.getAnnotations()) {
+                if (annotation.annotationType().isAnnotationPresent(StepDefinitionAnnotation.class)) {
+                    stepPattern(annotation).map(expressions::createExpression).ifPresent(steps::add);
+                }
+            }
+        }
+        return steps;
+    }
+
+    private static Optional<String> stepPattern(Annotation annotation) {
+        try {
+            return Optional.of((String) annotation.annotationType().getMethod("value").invoke(annotation));
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns the class path of a class loader chain. Under exec:java the test classes are in a URLClassLoader and
+     * java.class.path only holds the Maven launcher.
+     *
+     * @param classLoader Class loader
+     * @return path-separator separated entries
+     */
+    static String classpath(ClassLoader classLoader) {
+        Collection<String> entries = new LinkedHashSet<>();
+        for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent()) {
+            if (loader instanceof URLClassLoader urlLoader) {
+                for (URL url : urlLoader.getURLs()) {
+                    try {
+                        entries.add(Path.of(url.toURI()).toString());
+                    } catch (URISyntaxException | IllegalArgumentException e) {
+                        logger.debug("Skipping class path entry {}", url);
+                    }
+                }
+            }
+        }
+        // Launched with plain java -cp, the application class loader is not a URLClassLoader
+        return entries.isEmpty() ? System.getProperty("java.class.path") : String.join(File.pathSeparator, entries);
+    }
+
+    /**
+     * Loads the glue package from its own directory first and everything else from the parent. Resources of the glue
+     * package also come only from that directory, so Cucumber's package scan finds each step class once.
+     */
+    private static final class GlueClassLoader extends URLClassLoader {
+
+        private static final String GLUE_PATH = GLUE.replace('.', '/') + "/";
+
+        GlueClassLoader(URL directory, ClassLoader parent) throws MalformedURLException {
+            super(new URL[]{directory}, parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith(GLUE + ".")) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    try {
+                        loaded = findClass(name);
+                    } catch (ClassNotFoundException e) {
+                        loaded = super.loadClass(name, false);
+                    }
+                }
+                if (resolve) {
+                    resolveClass(loaded);
+                }
+                return loaded;
+            }
+        }
+
+        @Override
+        public Enumeration<URL> getResources(String name) throws IOException {
+            String path = name.endsWith("/") ? name : name + "/";
+            return GLUE_PATH.equals(path) ? findResources(name) : super.getResources(name);
+        }
+
+        @Override
+        public URL getResource(String name) {
+            URL own = name.startsWith(GLUE_PATH) ? findResource(name) : null;
+            return (own != null) ? own : super.getResource(name);
+        }
+    }
+}
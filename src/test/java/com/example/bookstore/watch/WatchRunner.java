@@ -0,0 +1,263 @@
+package com.example.bookstore.watch;
+
+import com.example.bookstore.cassette.CassetteFilter;
+import com.example.bookstore.metrics.HttpMetrics;
+import com.example.bookstore.stepdefs.Hooks;
+import com.example.bookstore.util.ApiHelper;
+import com.example.bookstore.util.ConfigUtil;
+import com.example.bookstore.util.LaunchUtil;
+import com.example.bookstore.util.LoggerUtil;
+import com.example.bookstore.util.TokenCache;
+import com.example.bookstore.watch.FeatureIndex.ScenarioRef;
+import io.cucumber.core.cli.Main;
+import io.cucumber.cucumberexpressions.Expression;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Long-lived runner that keeps the JVM, the glue and the HTTP stack warm between runs.
+ * <p>
+ * It runs the suite once, then watches bookstore.watch.features and bookstore.watch.sources. A changed feature file
+ * re-runs only its new or edited scenarios (see {@link FeatureIndex}). A changed step definition class is recompiled
+ * and reloaded (see {@link GlueReloader}) and re-runs the scenarios that use one of its old or new steps; a changed
+ * glue class without steps, such as {@link Hooks} or ScenarioState, re-runs everything. Changes outside the glue
+ * package are only reported, since those classes hold the warm state and need a restart.
+ * <p>
+ * While idle, a cheap catalog request every bookstore.watch.keepWarmSeconds stops the pooled connection and its TLS
+ * session from timing out. With bookstore.watch.once=true the runner stops after the first run: started with
+ * {@code java} it exits with Cucumber's exit status, which is how {@link CdsArchive} trains and how CI uses the
+ * archive; under exec:java it returns, or throws if the run failed. Run it with
+ * {@code mvn test-compile exec:java -Pwatch}.
+ */
+public class WatchRunner {
+
+    private static final Logger logger = LoggerUtil.getLogger(WatchRunner.class);
+
+    private static final Path FEATURES = Path.of(ConfigUtil.getString("bookstore.watch.features", "src/test/resources/features"));
+    private static final Path SOURCES = Path.of(ConfigUtil.getString("bookstore.watch.sources", "src/test/java"));
+    private static final Path RELOAD_DIR = Path.of(ConfigUtil.getString("bookstore.watch.reloadDir", "target/watch-classes"));
+    private static final String TAGS = ConfigUtil.getString("bookstore.watch.tags", "");
+    private static final boolean ONCE = ConfigUtil.getBoolean("bookstore.watch.once", false);
+    private static final int KEEP_WARM_SECONDS = ConfigUtil.getInt("bookstore.watch.keepWarmSeconds", 20);
+    private static final int DEBOUNCE_MS = ConfigUtil.getInt("bookstore.watch.debounceMs", 300);
+
+    private static volatile boolean running;
+    private static volatile boolean busy;
+
+    /**
+     * Returns whether the runner is active, so suite-level hooks leave the shared state alive between runs
+     *
+     * @return true while {@link #main(String[])} is running
+     */
+    public static boolean isRunning() {
+        return running;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        running = true;
+        FeatureIndex index = new FeatureIndex();
+        index.scan(FEATURES);
+        GlueReloader glue = new GlueReloader(SOURCES, RELOAD_DIR, WatchRunner.class.getClassLoader());
+
+        byte status = run(glue.classLoader(), List.of(FEATURES.toString()));
+        if (ONCE) {
+            tearDown();
+            if (LaunchUtil.launchedDirectly(WatchRunner.class)) {
+                System.exit(status);
+            }
+            // Under exec:java this JVM is Maven's; fail the goal instead of exiting, so Maven still reports
+            if (status != 0) {
+                throw new IllegalStateException("The run had failures (Cucumber exit status " + status + ")");
+            }
+            return;
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(WatchRunner::tearDown, "watch-teardown"));
+        startKeepWarm();
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            register(watcher, FEATURES);
+            register(watcher, SOURCES);
+            logger.info("Watching {} and {} for changes, press Ctrl+C to stop", FEATURES, SOURCES);
+            while (true) {
+                Set<Path> changed = new LinkedHashSet<>();
+                collect(watcher, watcher.take(), changed);
+                // Editors often save in several steps, so wait until the file system is quiet
+                WatchKey key;
+                while ((key = watcher.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS)) != null) {
+                    collect(watcher, key, changed);
+                }
+                onChange(changed, index, glue);
+            }
+        } catch (ClosedWatchServiceException e) {
+            logger.info("Stopped watching");
+        }
+    }
+
+    private static void onChange(Set<Path> changed, FeatureIndex index, GlueReloader glue) {
+        Set<ScenarioRef> affected = new LinkedHashSet<>();
+        List<Path> glueSources = new ArrayList<>();
+        for (Path path : changed) {
+            if (FeatureIndex.isFeature(path)) {
+                affected.addAll(index.update(path));
+            } else if (glue.isGlue(path)) {
+                glueSources.add(path);
+            } else {
+                logger.warn("{} is outside {} and cannot be reloaded; restart the runner to pick it up", path, GlueReloader.GLUE);
+            }
+        }
+
+        if (!glueSources.isEmpty()) {
+            ClassLoader previous = glue.classLoader();
+            if (glue.reload()) {
+                affected.addAll(usingSteps(glueSources, previous, glue.classLoader(), index.all()));
+            } else if (affected.isEmpty()) {
+                logger.warn("Keeping the previous step definitions until {} compiles again", GlueReloader.GLUE);
+                return;
+            }
+        }
+
+        if (affected.isEmpty()) {
+            logger.info("No scenarios affected by {}", changed);
+            return;
+        }
+        logger.info("Re-running {} affected scenarios: {}", affected.size(),
+                affected.stream().map(ScenarioRef::name).collect(Collectors.joining(", ")));
+        run(glue.classLoader(), locations(affected));
+    }
+
+    private static Collection<ScenarioRef> usingSteps(List<Path> sources, ClassLoader previous, ClassLoader current,
+                                                      List<ScenarioRef> scenarios) {
+        List<Expression> steps = new ArrayList<>();
+        for (Path source : sources) {
+            String file = source.getFileName().toString();
+            String simpleName = file.substring(0, file.length() - ".java".length());
+            List<Expression> before = GlueReloader.stepExpressions(previous, simpleName);
+            List<Expression> after = GlueReloader.stepExpressions(current, simpleName);
+            if (before.isEmpty() && after.isEmpty()) {
+                // Hooks, shared state or helpers: every scenario may depend on them
+                return scenarios;
+            }
+            steps.addAll(before);
+            steps.addAll(after);
+        }
+        return scenarios.stream()
+                        .filter(scenario -> scenario.steps().stream().anyMatch(text -> steps.stream().anyMatch(step -> step.match(text) != null)))
+                        .toList();
+    }
+
+    private static List<String> locations(Collection<ScenarioRef> scenarios) {
+        Map<Path, StringBuilder> byFeature = new LinkedHashMap<>();
+        for (ScenarioRef scenario : scenarios) {
+            byFeature.computeIfAbsent(scenario.feature(), feature -> new StringBuilder(relative(feature).toString()))
+                     .append(':').append(scenario.line());
+        }
+        return byFeature.values().stream().map(StringBuilder::toString).toList();
+    }
+
+    private static byte run(ClassLoader classLoader, List<String> features) {
+        List<String> cucumberArgs = new ArrayList<>(List.of("--glue", GlueReloader.GLUE, "--plugin", "pretty", "--plugin", "summary"));
+        if (!TAGS.isEmpty()) {
+            cucumberArgs.add("--tags");
+            cucumberArgs.add(TAGS);
+        }
+        cucumberArgs.addAll(features);
+
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        long startNanos = System.nanoTime();
+        busy = true;
+        thread.setContextClassLoader(classLoader);
+        try {
+            byte status = Main.run(cucumberArgs.toArray(String[]::new), classLoader);
+            logger.info("Run finished in {} ms with exit status {}", (System.nanoTime() - startNanos) / 1_000_000, status);
+            return status;
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+            busy = false;
+        }
+    }
+
+    private static void startKeepWarm() {
+        if (KEEP_WARM_SECONDS <= 0 || !"off".equals(ConfigUtil.getString("bookstore.cassette.mode", "off"))) {
+            return;
+        }
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "watch-keep-warm");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            if (!busy) {
+                try {
+                    ApiHelper.getAllBooks();
+                } catch (RuntimeException e) {
+                    logger.debug("Keep-warm request failed", e);
+                }
+            }
+        }, KEEP_WARM_SECONDS, KEEP_WARM_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static void tearDown() {
+        running = false;
+        logger.info("Token cache: {}", TokenCache.stats());
+        Hooks.cleanUp();
+        CassetteFilter.close();
+        HttpMetrics.writeSummary(Path.of(ConfigUtil.getString("bookstore.metrics.file", "target/http-metrics.json")));
+    }
+
+    private static void register(WatchService watcher, Path root) throws IOException {
+        try (Stream<Path> directories = Files.walk(root)) {
+            for (Path directory : (Iterable<Path>) directories.filter(Files::isDirectory)::iterator) {
+                directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+            }
+        }
+    }
+
+    private static void collect(WatchService watcher, WatchKey key, Set<Path> changed) {
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                logger.warn("Missed file system events in {}; save the file again to re-run it", directory);
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            if (Files.isDirectory(path)) {
+                try {
+                    register(watcher, path);
+                } catch (IOException e) {
+                    logger.warn("Cannot watch {}", path, e);
+                }
+            } else if (FeatureIndex.isFeature(path) || path.toString().endsWith(".java")) {
+                changed.add(path);
+            }
+        }
+        key.reset();
+    }
+
+    private static Path relative(Path path) {
+        Path workingDirectory = Path.of("").toAbsolutePath();
+        return path.startsWith(workingDirectory) ? workingDirectory.relativize(path) : path;
+    }
+}
@@ -13,6 +13,13 @@ Feature: Book Store API functionality
     Then the response status code should be 200
     And the response should contain the book title "Git Pocket Guide"
 
+  @positive
+  Scenario: Look up catalog data without calling the book endpoints
+    Given the catalog is cached
+    And the catalog contains a book with ISBN "9781449325862"
+    Then the catalog title for ISBN "9781449331818" should be "Learning JavaScript Design Patterns"
+    And no book endpoint should have been called since the catalog was cached
+
   @negative
   Scenario: Retrieve a book using an invalid ISBN
     When I send a GET request to fetch book with ISBN "invalid-isbn-123"
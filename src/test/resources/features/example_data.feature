@@ -0,0 +1,40 @@
+@example_data
+Feature: Bookstore API checks driven by external example data
+
+  @positive
+  Scenario Outline: Every catalog book can be fetched, one partition per worker
+    Given example rows from "data/catalog.csv" with
+      | partition | <partition>/4 |
+    Then every example book can be fetched by its ISBN with its title
+
+    Examples:
+      | partition |
+      | 0         |
+      | 1         |
+      | 2         |
+      | 3         |
+
+  @positive
+  Scenario: Filtered catalog rows can be fetched
+    Given example rows from "data/catalog.csv" with
+      | where | pages >= 250 and publisher ~ Reilly |
+    Then every example book can be fetched by its ISBN with its title
+
+  @positive
+  Scenario: A reproducible sample of catalog rows can be fetched
+    Given example rows from "data/catalog.csv" with
+      | sample | 50% |
+      | seed   | 7   |
+    Then every example book can be fetched by its ISBN with its title
+
+  @negative
+  Scenario: Password variants are accepted or rejected by the password policy
+    Given example rows from "data/password-variants.jsonl"
+    Then every example password is accepted or rejected as expected
+
+  @negative
+  Scenario: Password variants can be filtered on an optional field
+    Given example rows from "data/password-variants.jsonl" with
+      | where | message ~ non alphanumeric |
+    Then 5 example rows should be selected
+    And every example password is accepted or rejected as expected
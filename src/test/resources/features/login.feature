@@ -9,6 +9,15 @@ Feature: Login API functionality
     Then the response status code should be 200 and contain a token
     And the user should be retrievable by GET request
 
+  @positive
+  Scenario: Create a user whose credentials contain a quote and a backslash
+    Given I generate a unique test username and password containing a quote and a backslash
+    When I send a POST request to create the user
+    Then the response status code should be 201
+    When I send a POST request to generate a token for the user
+    Then the response status code should be 200 and contain a token
+    And the user should be retrievable by GET request
+
   @negative
   Scenario: Fail to create a user with a missing password
     Given I generate a unique test username and an empty password
@@ -62,3 +71,9 @@ Feature: Login API functionality
     When I attempt to generate a token with missing username
     Then the response status code should be 400
     And the response should contain "UserName and Password required."
+
+  @negative
+  Scenario: Fail to generate a token with a malformed request body
+    Given I generate a unique test username and password
+    When I attempt to generate a token with a malformed JSON body
+    Then the response status code should be 400
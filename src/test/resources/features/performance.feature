@@ -0,0 +1,24 @@
+@performance
+Feature: Bookstore API latency budgets
+
+  Scenario: A single catalog request stays within its budget
+    When I send a GET request to fetch all books
+    Then the response status code should be 200
+    And the response time should be under 5000 ms
+
+  Scenario: Catalog lookups stay within their budget under concurrency
+    When I send a GET request to fetch book with ISBN "9781449325862"
+    Then the response status code should be 200
+    When I repeat the last request 40 times with 4 concurrent users
+    Then every repeated request should return status 200
+    And the p95 response time should be under 3000 ms
+    And the p50 response time should be under 2000 ms
+
+  Scenario: Rejected logins stay within their budget
+    Given I generate a unique test username and password
+    And I send a POST request to create the user
+    When I send a POST request to generate a token with invalid password
+    Then the response status code should be 200
+    When I repeat the last request 20 times with 2 concurrent users after 1 warm-up requests each
+    Then every repeated request should return status 200
+    And the p99 response time should be under 5000 ms
@@ -0,0 +1,10 @@
+@report
+Feature: Merged reports
+
+  Scenario: The message streams of two shards merge into one report
+    Given the message streams "reports/login-shard-0.ndjson" and "reports/login-shard-1.ndjson" of one sharded run
+    When the message streams are merged
+    Then the merged JSON report should list each feature once, with its scenarios at lines
+      | classpath:features/login.feature | 4, 13, 20, 28, 37, 44, 52, 60, 67 |
+    And the merged HTML report should contain each gherkin document once
+    And every pickle in the merged HTML report should refer to nodes of a gherkin document in the report